@@ -0,0 +1,165 @@
+package by.it.a_khmelev.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+/*
+Быстрая замена java.util.Scanner для чтения входных данных задач.
+
+Scanner разбирает вход регулярными выражениями и на больших файлах работает
+намного дольше самих алгоритмов. Здесь числа разбираются прямо из байтов:
+    - для InputStream через один переиспользуемый буфер,
+    - для File через отображение файла в память (memory-mapped) кусками до 1 ГБ.
+Разделители - любые пробельные символы (как у Scanner по умолчанию), вход считается ASCII.
+Ошибки ввода-вывода, как и у Scanner, не объявляются: они приходят как UncheckedIOException.
+*/
+
+public class FastInput implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_SIZE = 1L << 30;
+
+    private final InputStream stream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private final FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long mappedEnd;         //смещение в файле сразу за текущим куском
+
+    public FastInput(InputStream stream) {
+        this.stream = stream;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.channel = null;
+    }
+
+    public FastInput(File file) throws FileNotFoundException {
+        this.stream = null;
+        this.buffer = null;
+        this.channel = new FileInputStream(file).getChannel();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+        else stream.close();
+    }
+
+    public boolean hasNext() {
+        int c = skipSpaces();
+        if (c < 0) return false;
+        unread();
+        return true;
+    }
+
+    public String next() {
+        int c = skipSpaces();
+        if (c < 0) throw new NoSuchElementException();
+        StringBuilder sb = new StringBuilder();
+        while (c > ' ') {
+            sb.append((char) c);
+            c = read();
+        }
+        if (c >= 0) unread();   //разделитель остается во входе, как у Scanner
+        return sb.toString();
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value != (int) value) throw new NumberFormatException("int overflow: " + value);
+        return (int) value;
+    }
+
+    public long nextLong() {
+        int c = skipSpaces();
+        if (c < 0) throw new NoSuchElementException();
+        boolean negative = c == '-';
+        if (negative || c == '+') c = read();
+        if (c < '0' || c > '9') throw new NumberFormatException("not a number at '" + (char) c + "'");
+        //накопление идет в отрицательную сторону, чтобы поместился и Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            int digit = c - '0';
+            if (value < limit / 10 || value * 10 < limit + digit) throw new NumberFormatException("long overflow");
+            value = value * 10 - digit;
+            c = read();
+        }
+        if (c > ' ') throw new NumberFormatException("not a number at '" + (char) c + "'");
+        if (c >= 0) unread();
+        return negative ? value : -value;
+    }
+
+    public double nextDouble() {
+        return Double.parseDouble(next());
+    }
+
+    //строка до конца текущей строки (без перевода строки), null в конце входа
+    public String nextLine() {
+        int c = read();
+        if (c < 0) return null;
+        StringBuilder sb = new StringBuilder();
+        while (c >= 0 && c != '\n') {
+            if (c != '\r') sb.append((char) c);
+            c = read();
+        }
+        return sb.toString();
+    }
+
+    //первый непробельный байт (уже прочитанный) или -1
+    private int skipSpaces() {
+        int c = read();
+        while (c >= 0 && c <= ' ') c = read();
+        return c;
+    }
+
+    private int read() {
+        if (channel != null) {
+            if (mapped == null || !mapped.hasRemaining()) {
+                if (!mapNext()) return -1;
+            }
+            return mapped.get() & 0xFF;
+        }
+        if (position == limit) {
+            try {
+                limit = stream.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    //возвращает на место только что прочитанный байт (он всегда в текущем буфере)
+    private void unread() {
+        if (channel != null) mapped.position(mapped.position() - 1);
+        else position--;
+    }
+
+    private boolean mapNext() {
+        try {
+            long size = channel.size();
+            if (mappedEnd >= size) return false;
+            long length = Math.min(MAP_SIZE, size - mappedEnd);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, length);
+            mappedEnd += length;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package by.it.a_khmelev.lesson01;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Вывод огромных BigInteger (например, результата FiboEngine) в десятичном виде
+ * без построения одной гигантской строки.
+ *
+ * Перевод "разделяй и властвуй": x = q * 10^d + r, где 10^d примерно sqrt(x),
+ * старшая и младшая части печатаются рекурсивно (младшая дополняется нулями).
+ * Деление больших BigInteger субквадратично (Burnikel-Ziegler), степени десяти
+ * 10^(LEAF_DIGITS * 2^k) вычисляются один раз и переиспользуются между вызовами
+ * (в общем кэше не больше CACHED_POWERS штук, более крупные живут только во время вызова).
+ * Цифры уходят в Appendable/OutputStream кусками по LEAF_DIGITS.
+ */
+
+public class DecimalWriter {
+
+    //сколько цифр переводится в лист рекурсии обычным toString()
+    static final int LEAF_DIGITS = 256;
+
+    //сколько степеней хранит общий кэш: последняя - 10^(256 * 2^15), около 3.5 МБ,
+    //весь кэш - около 7 МБ. Для чисел длиннее ~16 млн цифр остальные степени
+    //досчитываются в каждом вызове и после него освобождаются
+    static final int CACHED_POWERS = 16;
+
+    //POWERS.get(k) = 10^(LEAF_DIGITS * 2^k), общий кэш на все вызовы
+    private static final List<BigInteger> POWERS = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        int n = 1_000_000;
+        BigInteger value = new FiboEngine().calc(n);
+
+        long startTime = System.currentTimeMillis();
+        int length = value.toString().length();
+        System.out.printf("toString F(%d) digits=%d \n\t time=%d \n\n", n, length, System.currentTimeMillis() - startTime);
+
+        startTime = System.currentTimeMillis();
+        write(value, OutputStream.nullOutputStream());
+        System.out.printf("DecimalWriter F(%d) \n\t time=%d \n\n", n, System.currentTimeMillis() - startTime);
+    }
+
+    static void write(BigInteger value, Appendable out) throws IOException {
+        if (value.signum() < 0) {
+            out.append('-');
+            value = value.negate();
+        }
+        if (value.bitLength() < 64) {
+            out.append(Long.toString(value.longValue()));
+            return;
+        }
+        List<BigInteger> powers = new ArrayList<>();
+        for (int k = 0; k == 0 || powers.get(k - 1).compareTo(value) <= 0; k++) {
+            powers.add(k < CACHED_POWERS ? power(k) : powers.get(k - 1).multiply(powers.get(k - 1)));
+        }
+        //теперь value < 10^(LEAF_DIGITS * 2^k), k = powers.size() - 1
+        write(value, powers.size() - 2, false, powers, out);
+    }
+
+    static void write(BigInteger value, OutputStream stream) throws IOException {
+        AsciiBuffer buffer = new AsciiBuffer(stream);
+        try {
+            write(value, buffer);
+            buffer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    //value < power(k+1); если padded, выводится ровно LEAF_DIGITS * 2^(k+1) цифр
+    private static void write(BigInteger value, int k, boolean padded, List<BigInteger> powers, Appendable out)
+            throws IOException {
+        if (k < 0) {
+            String digits = value.toString();
+            if (padded) {
+                for (int i = digits.length(); i < LEAF_DIGITS; i++) out.append('0');
+            }
+            out.append(digits);
+            return;
+        }
+        BigInteger[] qr = value.divideAndRemainder(powers.get(k));
+        if (padded || qr[0].signum() != 0) {
+            write(qr[0], k - 1, padded, powers, out);
+            write(qr[1], k - 1, true, powers, out);
+        } else {
+            write(qr[1], k - 1, false, powers, out);
+        }
+    }
+
+    //k < CACHED_POWERS
+    private static BigInteger power(int k) {
+        synchronized (POWERS) {
+            if (POWERS.isEmpty()) POWERS.add(BigInteger.TEN.pow(LEAF_DIGITS));
+            while (POWERS.size() <= k) {
+                BigInteger last = POWERS.get(POWERS.size() - 1);
+                POWERS.add(last.multiply(last));
+            }
+            return POWERS.get(k);
+        }
+    }
+
+    //Appendable поверх OutputStream: цифры копятся в байтовом буфере и уходят блоками
+    private static class AsciiBuffer implements Appendable {
+        private final OutputStream stream;
+        private final byte[] buffer = new byte[1 << 16];
+        private int size;
+
+        AsciiBuffer(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) append(csq.charAt(i));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (size == buffer.length) flush();
+            buffer[size++] = (byte) c;
+            return this;
+        }
+
+        void flush() {
+            try {
+                stream.write(buffer, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size = 0;
+        }
+    }
+}
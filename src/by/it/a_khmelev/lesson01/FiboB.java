@@ -1,6 +1,7 @@
 package by.it.a_khmelev.lesson01;
 
 import java.math.BigInteger;
+import java.util.stream.Stream;
 
 /*
  * Вам необходимо выполнить способ вычисления чисел Фибоначчи с вспомогательным массивом
@@ -45,5 +46,10 @@ public class FiboB {
             return  BigInteger.ZERO;
     }
 
+    //ленивый ряд F(from)..F(to) без общего массива, parallel() делит его на куски
+    Stream<BigInteger> rangeB(long from, long to) {
+        return FiboSpliterator.stream(from, to, false);
+    }
+
 }
 
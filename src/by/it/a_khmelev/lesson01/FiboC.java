@@ -8,6 +8,9 @@ package by.it.a_khmelev.lesson01;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class FiboC {
 
@@ -24,6 +27,18 @@ public class FiboC {
         int n = 10;
         int m = 2;
         System.out.printf("fasterC(%d)=%d \n\t time=%d \n\n", n, fibo.fasterC(n, m), fibo.time());
+
+        //модули порядка 1E12..1E18, где период Пизано искать бесполезно
+        long bigN = 999_999_999_999_999_999L;
+        long bigM = 1_000_000_000_000_000_003L;
+        int repeat = 1_000_000;
+        long check = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            check ^= fasterC64(bigN - i, bigM);
+        }
+        System.out.printf("fasterC64(%d, %d) \n\t time=%d ns/call (%d) \n\n",
+                bigN, bigM, (System.nanoTime() - start) / repeat, check);
     }
 
 
@@ -43,6 +58,171 @@ public class FiboC {
         //return 0L;
     }
 
+    //сколько различных периодов Пизано держать в кэше (вытесняется давно не использованный)
+    static final int PERIOD_CACHE_SIZE = 4096;
+
+    private final Map<Integer, Long> periods = new LinkedHashMap<Integer, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+            return size() > PERIOD_CACHE_SIZE;
+        }
+    };
+
+    //пакетный вариант fasterC: result[i] = F(n[i]) mod m[i]
+    //запросы группируются по модулю, период Пизано для каждого модуля ищется один раз
+    long[] fasterC(long[] n, int[] m) {
+        if (n.length != m.length)
+            throw new IllegalArgumentException("n and m must have the same length");
+        //ключ = (модуль, номер запроса), сортировка примитивов без упаковки
+        long[] order = new long[n.length];
+        for (int i = 0; i < n.length; i++) {
+            if (m[i] < 1) throw new IllegalArgumentException("m must be positive: " + m[i]);
+            order[i] = ((long) m[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        long[] result = new long[n.length];
+        int i = 0;
+        while (i < order.length) {
+            int mod = (int) (order[i] >>> 32);
+            long period = pisanoPeriod(mod);
+            for (; i < order.length && (int) (order[i] >>> 32) == mod; i++) {
+                int q = (int) order[i];
+                result[q] = fibMod(n[q] % period, mod);
+            }
+        }
+        return result;
+    }
+
+    //период Пизано для модуля m (через кэш)
+    long pisanoPeriod(int m) {
+        synchronized (periods) {
+            Long period = periods.get(m);
+            if (period != null) return period;
+        }
+        long period = calcPisanoPeriod(m);
+        synchronized (periods) {
+            periods.put(m, period);
+        }
+        return period;
+    }
+
+    //период ищется до повторения пары (0, 1), он не превышает 6m
+    static long calcPisanoPeriod(int m) {
+        if (m == 1) return 1;
+        long prev = 0, cur = 1;
+        for (long i = 1; ; i++) {
+            long next = (prev + cur) % m;
+            prev = cur;
+            cur = next;
+            if (prev == 0 && cur == 1) return i;
+        }
+    }
+
+    //F(n) mod m для любого положительного 64-битного модуля (до Long.MAX_VALUE).
+    //Модуль раскладывается как m = 2^k * q с нечетным q:
+    //по модулю 2^k считаем в обычной переполняющейся long-арифметике,
+    //по модулю q - в форме Монтгомери (128-битные произведения через Math.multiplyHigh),
+    //затем ответы склеиваются по китайской теореме об остатках.
+    //Ни BigInteger, ни других аллокаций, ни одного деления в цикле.
+    static long fasterC64(long n, long m) {
+        if (n < 0) throw new IllegalArgumentException("n must be non-negative: " + n);
+        if (m < 1) throw new IllegalArgumentException("m must be positive: " + m);
+        int k = Long.numberOfTrailingZeros(m);
+        long q = m >>> k;
+        long r2 = q == 1 ? 0 : fibModOdd(n, q);
+        if (k == 0) return r2;
+        long mask = (1L << k) - 1;
+        long r1 = fibMod2(n) & mask;
+        //x = r2 + q*t, где t = (r1 - r2) * q^-1 mod 2^k
+        long t = ((r1 - r2) * inverse64(q)) & mask;
+        return r2 + q * t;
+    }
+
+    //F(n) mod 2^64 (переполнение long и есть взятие остатка)
+    private static long fibMod2(long n) {
+        long a = 0, b = 1;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            long c = a * (2 * b - a);
+            long d = a * a + b * b;
+            if (((n >>> bit) & 1) != 0) {
+                a = d;
+                b = c + d;
+            } else {
+                a = c;
+                b = d;
+            }
+        }
+        return a;
+    }
+
+    //F(n) mod q для нечетного q > 1, все значения хранятся в форме Монтгомери x*2^64 mod q
+    private static long fibModOdd(long n, long q) {
+        long qInv = -inverse64(q);                   //-q^-1 mod 2^64
+        long one = Long.remainderUnsigned(-q, q);    //2^64 mod q
+        long a = 0, b = one;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            long c = montMul(a, subMod(addMod(b, b, q), a, q), q, qInv); //F(2k)
+            long d = addMod(montMul(a, a, q, qInv), montMul(b, b, q, qInv), q); //F(2k+1)
+            if (((n >>> bit) & 1) != 0) {
+                a = d;
+                b = addMod(c, d, q);
+            } else {
+                a = c;
+                b = d;
+            }
+        }
+        return montMul(a, 1, q, qInv); //выход из формы Монтгомери
+    }
+
+    //a*b*2^-64 mod q для a, b из [0, q), q нечетно и меньше 2^63 (редукция REDC)
+    static long montMul(long a, long b, long q, long qInv) {
+        long hi = Math.multiplyHigh(a, b); //для неотрицательных a, b совпадает с беззнаковой
+        long lo = a * b;
+        long u = lo * qInv;
+        //беззнаковая старшая половина u*q (u может быть "отрицательным", q - нет)
+        long uqHi = Math.multiplyHigh(u, q) + ((u >> 63) & q);
+        //младшие половины lo + u*q в сумме дают ровно 0 mod 2^64, перенос есть, если lo != 0
+        long r = hi + uqHi + (lo != 0 ? 1 : 0);
+        return Long.compareUnsigned(r, q) >= 0 ? r - q : r;
+    }
+
+    //обратный к нечетному x по модулю 2^64 (метод Ньютона, каждый шаг удваивает число верных бит)
+    static long inverse64(long x) {
+        long inv = x; //верно в 3 младших битах
+        for (int i = 0; i < 5; i++) {
+            inv *= 2 - x * inv;
+        }
+        return inv;
+    }
+
+    //аргументы из [0, m), суммы сравниваются как беззнаковые
+    static long addMod(long a, long b, long m) {
+        long s = a + b;
+        return Long.compareUnsigned(s, m) >= 0 ? s - m : s;
+    }
+
+    static long subMod(long a, long b, long m) {
+        long s = a - b;
+        return s < 0 ? s + m : s;
+    }
+
+    //F(n) mod m быстрым удвоением, для m < 2^31 произведения помещаются в long
+    static long fibMod(long n, int m) {
+        long a = 0, b = 1 % m;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            long c = a * ((2 * b - a + m) % m) % m; //F(2k)
+            long d = (a * a + b * b) % m;             //F(2k+1)
+            if (((n >>> bit) & 1) != 0) {
+                a = d;
+                b = (c + d) % m;
+            } else {
+                a = c;
+                b = d;
+            }
+        }
+        return a;
+    }
+
 
 }
 
@@ -0,0 +1,106 @@
+package by.it.a_khmelev.lesson01;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Вычисление чисел Фибоначчи методом быстрого удвоения (fast doubling)
+ * без ограничений на размер результата (BigInteger).
+ *
+ *      F(2k)   = F(k) * (2*F(k+1) - F(k))
+ *      F(2k+1) = F(k)^2 + F(k+1)^2
+ *
+ * Проходим биты n от старшего к младшему, храня только пару (F(k), F(k+1)).
+ * Время O(log n) умножений BigInteger, память O(1) промежуточных чисел
+ * (в отличие от массива из n чисел, как в FiboB.fastB).
+ */
+
+public class FiboEngine {
+
+    //начиная с такой длины (в битах) три независимых умножения шага
+    //выполняются параллельно. На меньших числах накладные расходы больше выигрыша
+    static final int PARALLEL_THRESHOLD_BITS = 1 << 16;
+
+    private long startTime = System.currentTimeMillis();
+
+    private long time() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    public static void main(String[] args) {
+        //сравнение с рекурсией FiboA.slowA и с итеративным O(n) сложением
+        //(FiboB.fastB - заготовка для студентов, сравнивать с ней нельзя)
+        FiboA fiboA = new FiboA();
+        int n = 33;
+        System.out.printf("slowA(%d) \n\t time=%d \n\n", n, timeOf(fiboA::slowA, n));
+
+        n = 55555;
+        System.out.printf("iterative(%d) \n\t time=%d \n\n", n, timeOf(FiboEngine::iterative, n));
+
+        FiboEngine engine = new FiboEngine();
+        System.out.printf("calc(%d) \n\t time=%d \n\n", n, timeOf(engine::calc, n));
+
+        //а вот такие n для массива в FiboB уже недостижимы
+        n = 10_000_000;
+        engine = new FiboEngine();
+        BigInteger big = engine.calc(n);
+        System.out.printf("calc(%d) bits=%d \n\t time=%d \n\n", n, big.bitLength(), engine.time());
+    }
+
+    private static long timeOf(java.util.function.Function<Integer, BigInteger> f, int n) {
+        long start = System.currentTimeMillis();
+        f.apply(n);
+        return System.currentTimeMillis() - start;
+    }
+
+    //базовый вариант для замеров: n сложений BigInteger, время O(n^2) по битам
+    static BigInteger iterative(int n) {
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            BigInteger next = a.add(b);
+            a = b;
+            b = next;
+        }
+        return a;
+    }
+
+    BigInteger calc(long n) {
+        return pair(n)[0];
+    }
+
+    //пара (F(n), F(n+1)) - с нее можно продолжать ряд обычным сложением
+    static BigInteger[] pair(long n) {
+        if (n < 0) throw new IllegalArgumentException("n must be non-negative: " + n);
+        BigInteger a = BigInteger.ZERO; //F(k)
+        BigInteger b = BigInteger.ONE;  //F(k+1)
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            BigInteger[] step = doubling(a, b);
+            a = step[0];
+            b = step[1];
+            if (((n >>> bit) & 1) != 0) {
+                BigInteger next = a.add(b);
+                a = b;
+                b = next;
+            }
+        }
+        return new BigInteger[]{a, b};
+    }
+
+    //по паре (F(k), F(k+1)) возвращает пару (F(2k), F(2k+1))
+    private static BigInteger[] doubling(BigInteger a, BigInteger b) {
+        BigInteger twoBMinusA = b.shiftLeft(1).subtract(a);
+        if (b.bitLength() < PARALLEL_THRESHOLD_BITS) {
+            return new BigInteger[]{
+                    a.multiply(twoBMinusA),
+                    a.multiply(a).add(b.multiply(b))
+            };
+        }
+        //три умножения не зависят друг от друга, считаем их на разных ядрах
+        CompletableFuture<BigInteger> aa = CompletableFuture.supplyAsync(() -> a.multiply(a));
+        CompletableFuture<BigInteger> bb = CompletableFuture.supplyAsync(() -> b.multiply(b));
+        BigInteger even = a.multiply(twoBMinusA);
+        return new BigInteger[]{even, aa.join().add(bb.join())};
+    }
+
+}
@@ -0,0 +1,91 @@
+package by.it.a_khmelev.lesson01;
+
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Ленивый источник чисел Фибоначчи F(from), F(from+1), ..., F(to) (включительно).
+ * Числа не хранятся в массиве: внутри лежит только текущая пара (F(k), F(k+1)).
+ * При делении диапазона каждая половина сама находит свою стартовую пару
+ * быстрым удвоением (FiboEngine.pair), поэтому параллельный поток
+ * считает непересекающиеся куски на разных ядрах, не начиная с F(0).
+ */
+
+public class FiboSpliterator implements Spliterator<BigInteger> {
+
+    //куски короче этого не делятся: стартовая пара стоит O(log n) умножений,
+    //ее нужно окупить достаточным числом сложений
+    static final long MIN_CHUNK = 1 << 10;
+
+    private long from;      //следующий индекс к выдаче
+    private final long to;  //последний индекс (включительно)
+    private BigInteger a;   //F(from), null пока обход не начат
+    private BigInteger b;   //F(from+1)
+
+    FiboSpliterator(long from, long to) {
+        if (from < 0) throw new IllegalArgumentException("from must be non-negative: " + from);
+        this.from = from;
+        this.to = to;
+    }
+
+    static Stream<BigInteger> stream(long from, long to, boolean parallel) {
+        return StreamSupport.stream(new FiboSpliterator(from, to), parallel);
+    }
+
+    public static void main(String[] args) {
+        long from = 100_000;
+        long to = 160_000;
+        for (boolean parallel : new boolean[]{false, true}) {
+            long startTime = System.currentTimeMillis();
+            long bits = stream(from, to, parallel).mapToLong(BigInteger::bitLength).sum();
+            System.out.printf("F(%d..%d) parallel=%b bits=%d \n\t time=%d \n\n",
+                    from, to, parallel, bits, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BigInteger> action) {
+        if (from > to) return false;
+        if (a == null) seed();
+        action.accept(a);
+        BigInteger next = a.add(b);
+        a = b;
+        b = next;
+        from++;
+        return true;
+    }
+
+    @Override
+    public Spliterator<BigInteger> trySplit() {
+        long size = estimateSize();
+        if (size < 2 * MIN_CHUNK) return null;
+        long mid = from + size / 2;
+        //префикс забирает уже найденную пару (если была), суффикс засеется сам
+        FiboSpliterator prefix = new FiboSpliterator(from, mid - 1);
+        prefix.a = a;
+        prefix.b = b;
+        from = mid;
+        a = null;
+        b = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(0, to - from + 1);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+
+    private void seed() {
+        BigInteger[] pair = FiboEngine.pair(from);
+        a = pair[0];
+        b = pair[1];
+    }
+}
@@ -41,4 +41,103 @@ public class Lesson1Test {
         assertTrue("fasterC failed 2", fibo.fasterC(1,2)==1L);
         assertTrue("fasterC failed 3", fibo.fasterC(999999999,321)==34L);
     }
+
+    @Test(timeout = 2000)
+    public void fiboEngine() throws Exception {
+        FiboEngine engine=new FiboEngine();
+        BigInteger a=BigInteger.ZERO, b=BigInteger.ONE;
+        for (int n = 0; n <= 20000; n++) {
+            if (n <= 300 || n % 997 == 0 || n == 20000)
+                assertTrue("fiboEngine failed " + n, engine.calc(n).equals(a));
+            if (n <= 300)
+                assertTrue("fiboEngine iterative failed " + n, FiboEngine.iterative(n).equals(a));
+            BigInteger next=a.add(b);
+            a=b;
+            b=next;
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void fasterCBatch() throws Exception {
+        FiboC fibo=new FiboC();
+        long[] n={10, 1, 999999999, 10, 999999999, 1000000000000000000L};
+        int[] m={2, 2, 321, 2, 321, 100000};
+        long[] res=fibo.fasterC(n, m);
+        assertTrue("fasterC batch failed 1", res[0]==1L && res[3]==1L);
+        assertTrue("fasterC batch failed 2", res[1]==1L);
+        assertTrue("fasterC batch failed 3", res[2]==34L && res[4]==34L);
+        assertTrue("fasterC batch failed 4", res[5]==FiboC.fibMod(1000000000000000000L, 100000));
+        assertTrue("pisano failed", fibo.pisanoPeriod(10)==60 && fibo.pisanoPeriod(2)==3);
+    }
+
+    @Test(timeout = 2000)
+    public void fasterC64() throws Exception {
+        java.util.Random random=new java.util.Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long m=(random.nextLong()>>>1)|1;
+            long a=(random.nextLong()>>>1)%m, b=(random.nextLong()>>>1)%m;
+            BigInteger r=BigInteger.ONE.shiftLeft(64).modInverse(BigInteger.valueOf(m));
+            long expected=BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).multiply(r).mod(BigInteger.valueOf(m)).longValue();
+            assertTrue("montMul failed", FiboC.montMul(a, b, m, -FiboC.inverse64(m))==expected);
+        }
+        FiboEngine engine=new FiboEngine();
+        long[] mods={2, 321, 1_000_000_007L, 1_000_000_000_000L, 999_999_999_999_999_989L, Long.MAX_VALUE};
+        for (long m : mods) {
+            for (int n = 0; n < 3000; n += 37) {
+                long expected=engine.calc(n).mod(BigInteger.valueOf(m)).longValue();
+                assertTrue("fasterC64 failed " + n + " " + m, FiboC.fasterC64(n, m)==expected);
+            }
+        }
+        assertTrue("fasterC64 failed 3", FiboC.fasterC64(999999999,321)==34L);
+        assertTrue("fasterC64 failed 4", FiboC.fasterC64(Long.MAX_VALUE, 100000)==FiboC.fibMod(Long.MAX_VALUE, 100000));
+    }
+
+    @Test(timeout = 2000)
+    public void rangeB() throws Exception {
+        FiboB fibo=new FiboB();
+        java.util.List<BigInteger> seq=fibo.rangeB(3000, 9000).collect(java.util.stream.Collectors.toList());
+        java.util.List<BigInteger> par=fibo.rangeB(3000, 9000).parallel().collect(java.util.stream.Collectors.toList());
+        assertTrue("rangeB size failed", seq.size()==6001);
+        assertTrue("rangeB parallel failed", seq.equals(par));
+        FiboEngine engine=new FiboEngine();
+        for (int i = 0; i < seq.size(); i += 500) {
+            assertTrue("rangeB failed " + i, seq.get(i).equals(engine.calc(3000 + i)));
+        }
+        assertTrue("rangeB empty failed", fibo.rangeB(5, 4).count()==0);
+    }
+
+    @Test(timeout = 2000)
+    public void decimalWriter() throws Exception {
+        java.util.List<BigInteger> values=new java.util.ArrayList<>();
+        values.add(BigInteger.ZERO);
+        values.add(BigInteger.valueOf(-12345));
+        values.add(BigInteger.TEN.pow(256));
+        values.add(BigInteger.TEN.pow(512).subtract(BigInteger.ONE));
+        values.add(BigInteger.TEN.pow(1000).add(BigInteger.ONE).negate());
+        values.add(new FiboEngine().calc(55555));
+        java.util.Random random=new java.util.Random(1);
+        for (int i = 0; i < 50; i++) values.add(new BigInteger(1 + random.nextInt(20000), random));
+        for (BigInteger value : values) {
+            StringBuilder sb=new StringBuilder();
+            DecimalWriter.write(value, sb);
+            assertTrue("decimalWriter failed", sb.toString().equals(value.toString()));
+            java.io.ByteArrayOutputStream bytes=new java.io.ByteArrayOutputStream();
+            DecimalWriter.write(value, bytes);
+            assertTrue("decimalWriter stream failed", bytes.toString().equals(value.toString()));
+        }
+        //ошибка последнего сброса буфера приходит как IOException
+        java.io.OutputStream broken=new java.io.OutputStream() {
+            @Override
+            public void write(int b) throws java.io.IOException {
+                throw new java.io.IOException("broken");
+            }
+        };
+        boolean thrown=false;
+        try {
+            DecimalWriter.write(BigInteger.TEN.pow(300), broken);
+        } catch (java.io.IOException e) {
+            thrown=true;
+        }
+        assertTrue("decimalWriter flush failed", thrown);
+    }
 }
@@ -3,6 +3,7 @@ package by.it.a_khmelev.lesson02;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 /*
 даны события events
 реализуйте метод calcStartTimes, так, чтобы число включений регистратора на
@@ -18,6 +19,14 @@ public class A_VideoRegistrator {
         double[] events=new double[]{1, 1.1, 1.6, 2.2, 2.4, 2.7, 3.9, 8.1, 9.1, 5.5, 3.7};
         List<Double> starts=instance.calcStartTimes(events,1); //рассчитаем моменты старта, с длинной сеанса 1
         System.out.println(starts);                            //покажем моменты старта
+
+        //большой журнал событий в режиме без упаковки
+        int n = 10_000_000;
+        double[] big = new java.util.Random(1).doubles(n, 0, n).toArray();
+        double[] bigStarts = new double[n];
+        long startTime = System.currentTimeMillis();
+        int count = instance.calcStartTimes(big, 1, bigStarts);
+        System.out.printf("events=%d starts=%d time=%d\n", n, count, System.currentTimeMillis() - startTime);
     }
     //модификаторы доступа опущены для возможности тестирования
     List<Double> calcStartTimes(double[] events, double workDuration)  {
@@ -42,4 +51,42 @@ public class A_VideoRegistrator {
 
         return result;                        //вернем итог
     }
+
+    //начиная с такого размера массив событий сортируется параллельно
+    static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+    //вариант без упаковки: моменты старта пишутся в starts (длиной не меньше events.length),
+    //возвращается их количество. Массив events сортируется на месте.
+    int calcStartTimes(double[] events, double workDuration, double[] starts) {
+        if (events.length >= PARALLEL_SORT_THRESHOLD) Arrays.parallelSort(events);
+        else Arrays.sort(events);
+        ChunkedRegistrator registrator = new ChunkedRegistrator(workDuration);
+        int[] count = {0};
+        registrator.accept(events, 0, events.length, start -> starts[count[0]++] = start);
+        return count[0];
+    }
+
+    //потоковый режим: события приходят кусками, куски упорядочены по времени
+    //(все события куска не раньше событий предыдущего), внутри куска порядок любой.
+    //Моменты старта выдаются сразу, между кусками хранится только конец текущего сеанса.
+    static class ChunkedRegistrator {
+        private final double workDuration;
+        private double stop = Double.NEGATIVE_INFINITY; //конец работы камеры
+
+        ChunkedRegistrator(double workDuration) {
+            this.workDuration = workDuration;
+        }
+
+        //кусок сортируется на месте
+        void accept(double[] chunk, int from, int to, DoubleConsumer starts) {
+            if (to - from >= PARALLEL_SORT_THRESHOLD) Arrays.parallelSort(chunk, from, to);
+            else Arrays.sort(chunk, from, to);
+            for (int i = from; i < to; i++) {
+                if (chunk[i] > stop) {      //событие не покрыто - включаем камеру
+                    stop = chunk[i] + workDuration;
+                    starts.accept(chunk[i]);
+                }
+            }
+        }
+    }
 }
@@ -38,6 +38,21 @@ public class B_Sheduler {
 
         List<Event> starts = instance.calcStartTimes(events,0,10);  //рассчитаем оптимальное заполнение аудитории
         System.out.println(starts);                                 //покажем рассчитанный график занятий
+
+        //много аудиторий и миллионы событий в параллельных массивах
+        int n = 10_000_000;
+        java.util.Random random = new java.util.Random(1);
+        int[] start = new int[n], stop = new int[n], room = new int[n];
+        for (int i = 0; i < n; i++) {
+            start[i] = random.nextInt(n);
+            stop[i] = start[i] + 1 + random.nextInt(100);
+        }
+        long startTime = System.currentTimeMillis();
+        int rooms = instance.calcMinRooms(start, stop, room);
+        System.out.printf("events=%d minRooms=%d time=%d\n", n, rooms, System.currentTimeMillis() - startTime);
+        startTime = System.currentTimeMillis();
+        int count = instance.calcStartTimes(start, stop, 10, room);
+        System.out.printf("events=%d rooms=10 accepted=%d time=%d\n", n, count, System.currentTimeMillis() - startTime);
     }
 
     List<Event> calcStartTimes(Event[] events, int from, int to) {
@@ -56,4 +71,138 @@ public class B_Sheduler {
 
         return result;                        //вернем итог
     }
+
+    //Несколько аудиторий. События заданы параллельными массивами start[i], stop[i]
+    //(без объектов Event), аудитория свободна для события, если прошлое в ней кончилось не позже его начала.
+
+    //минимальное число аудиторий, в которые помещаются все события.
+    //room[i] - номер аудитории для события i.
+    //События по возрастанию начала, аудитории в min-куче по времени освобождения.
+    int calcMinRooms(int[] start, int[] stop, int[] room) {
+        int n = start.length;
+        int[] order = sortedBy(start);
+        //куча: (время освобождения << 32) | номер аудитории
+        long[] heap = new long[n];
+        int size = 0;
+        int rooms = 0;
+        for (int i : order) {
+            int free;
+            if (size > 0 && (int) (heap[0] >> 32) <= start[i]) {
+                free = (int) heap[0];           //самая рано освободившаяся аудитория подходит
+                heap[0] = pack(stop[i], free);
+                siftDown(heap, size, 0);
+            } else {
+                free = rooms++;                 //нужна новая аудитория
+                heap[size] = pack(stop[i], free);
+                siftUp(heap, size++);
+            }
+            room[i] = free;
+        }
+        return rooms;
+    }
+
+    //максимальное число событий, которые можно провести в k аудиториях.
+    //room[i] - номер аудитории или -1, если событие не принято.
+    //Жадно по возрастанию конца: событие отдаем аудитории, освободившейся позже всех,
+    //но не позже его начала. Времена освобождения лежат в отсортированном массиве
+    //(новое время всегда максимально и дописывается в конец), занятые ячейки
+    //пропускаются через систему непересекающихся множеств.
+    int calcStartTimes(int[] start, int[] stop, int k, int[] room) {
+        int n = start.length;
+        int[] order = sortedBy(stop);
+        int[] ends = new int[k + n];
+        int[] owner = new int[k + n];   //какой аудитории принадлежит ячейка
+        int[] left = new int[k + n];    //ближайшая живая ячейка не правее данной
+        int size = 0;
+        for (; size < k; size++) {
+            ends[size] = Integer.MIN_VALUE;
+            owner[size] = size;
+            left[size] = size;
+        }
+        int count = 0;
+        for (int i : order) {
+            room[i] = -1;
+            int slot = find(left, upperBound(ends, size, start[i]) - 1);
+            if (slot < 0) continue;     //все аудитории заняты
+            left[slot] = slot - 1;      //старое время освобождения больше не нужно
+            ends[size] = stop[i];
+            owner[size] = owner[slot];
+            left[size] = size;
+            size++;
+            room[i] = owner[slot];
+            count++;
+        }
+        return count;
+    }
+
+    //индексы событий, упорядоченные по key (устойчиво).
+    //Поразрядная сортировка LSD: два прохода по 16 бит, без сравнений и упаковки
+    private static int[] sortedBy(int[] key) {
+        int n = key.length;
+        int[] order = new int[n];
+        int[] buffer = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int shift = 0; shift < 32; shift += 16) {
+            int[] count = new int[(1 << 16) + 1];
+            for (int i = 0; i < n; i++) count[digit(key[i], shift) + 1]++;
+            for (int d = 0; d < 1 << 16; d++) count[d + 1] += count[d];
+            for (int i = 0; i < n; i++) buffer[count[digit(key[order[i]], shift)]++] = order[i];
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    //16-битная цифра ключа, знаковый бит инвертирован, чтобы отрицательные шли первыми
+    private static int digit(int key, int shift) {
+        return ((key ^ Integer.MIN_VALUE) >>> shift) & 0xFFFF;
+    }
+
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long value = heap[i];
+        while (i > 0 && heap[(i - 1) / 2] > value) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = value;
+    }
+
+    private static void siftDown(long[] heap, int size, int i) {
+        long value = heap[i];
+        for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= value) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    //первая позиция в ends[0..size), где значение больше value
+    private static int upperBound(int[] ends, int size, int value) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    //живая ячейка не правее i (или -1), со сжатием путей
+    private static int find(int[] left, int i) {
+        int root = i;
+        while (root >= 0 && left[root] != root) root = left[root];
+        while (i >= 0 && left[i] != i) {
+            int next = left[i];
+            left[i] = root;
+            i = next;
+        }
+        return root;
+    }
 }
\ No newline at end of file
@@ -12,9 +12,10 @@ package by.it.a_khmelev.lesson02;
 Необходимо собрать наиболее дорогой вариант рюкзака для этого объема
 Предметы можно резать на кусочки (т.е. алгоритм будет жадным)
  */
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
 
 public class C_GreedyKnapsack {
     private static class Item implements Comparable<Item> {
@@ -48,7 +49,12 @@ public class C_GreedyKnapsack {
 
 
     double calc(File source) throws FileNotFoundException {
-        Scanner input = new Scanner(source);
+        return calc(source, true);
+    }
+
+    //echo - показывать ли каждый предмет (на больших входах вывод дороже самого решения)
+    double calc(File source, boolean echo) throws FileNotFoundException {
+        FastInput input = new FastInput(source);
         int n = input.nextInt();      //сколько предметов в файле
         int W = input.nextInt();      //какой вес у рюкзака
         Item[] items = new Item[n];   //получим список предметов
@@ -56,8 +62,10 @@ public class C_GreedyKnapsack {
             items[i] = new Item(input.nextInt(), input.nextInt());
         }
         //покажем предметы
-        for (Item item:items) {
-            System.out.println(item);
+        if (echo) {
+            for (Item item:items) {
+                System.out.println(item);
+            }
         }
 
         System.out.printf("Всего предметов: %d. Рюкзак вмещает %d кг.\n",n,W);
@@ -82,6 +90,85 @@ public class C_GreedyKnapsack {
         return result;
     }
 
+    //Тот же рюкзак за ожидаемое O(n) без сортировки и без объектов Item.
+    //Ищем пороговую удельную стоимость (взвешенная медиана):
+    //все предметы дороже порога входят целиком, предметы с порогом - частично.
+    //Порог ищется как в quickselect: случайный опорный предмет, разбиение на три части
+    //(дороже, такие же, дешевле) и продолжение только в одной из них.
+    double calcLinear(File source, boolean echo) throws FileNotFoundException {
+        FastInput input = new FastInput(source);
+        int n = input.nextInt();
+        int W = input.nextInt();
+        int[] cost = new int[n];
+        int[] weight = new int[n];
+        for (int i = 0; i < n; i++) {
+            cost[i] = input.nextInt();
+            weight[i] = input.nextInt();
+            if (echo) System.out.printf("Item{cost=%d, weight=%d}\n", cost[i], weight[i]);
+        }
+        double result = maxCost(cost, weight, W);
+        if (echo) System.out.printf("Удалось собрать рюкзак на сумму %f\n", result);
+        return result;
+    }
+
+    static double maxCost(int[] cost, int[] weight, long W) {
+        int n = cost.length;
+        int[] idx = new int[n];
+        int size = 0;
+        long total = 0;                 //стоимость целиком взятых предметов
+        for (int i = 0; i < n; i++) {
+            if (weight[i] == 0) total += cost[i];   //невесомые берем всегда
+            else idx[size++] = i;
+        }
+        java.util.Random random = new java.util.Random(n);
+        int lo = 0, hi = size;          //кандидаты idx[lo..hi)
+        while (lo < hi && W > 0) {
+            int p = idx[lo + random.nextInt(hi - lo)];
+            //разбиение на три части: [lo, gt) дороже опорного, [gt, lt) такие же, [lt, hi) дешевле
+            int gt = lo, i = lo, lt = hi;
+            while (i < lt) {
+                int c = compareRatio(cost, weight, idx[i], p);
+                if (c > 0) swap(idx, gt++, i++);
+                else if (c < 0) swap(idx, i, --lt);
+                else i++;
+            }
+            long greaterWeight = 0, greaterCost = 0;
+            for (int j = lo; j < gt; j++) {
+                greaterWeight += weight[idx[j]];
+                greaterCost += cost[idx[j]];
+            }
+            if (greaterWeight > W) {    //порог среди более дорогих
+                hi = gt;
+                continue;
+            }
+            total += greaterCost;
+            W -= greaterWeight;
+            long equalWeight = 0, equalCost = 0;
+            for (int j = gt; j < lt; j++) {
+                equalWeight += weight[idx[j]];
+                equalCost += cost[idx[j]];
+            }
+            if (equalWeight >= W) {     //порог найден, отрезаем кусок по опорной цене
+                return total + (double) cost[p] * W / weight[p];
+            }
+            total += equalCost;
+            W -= equalWeight;
+            lo = lt;                    //продолжаем среди более дешевых
+        }
+        return total;
+    }
+
+    //сравнение cost[a]/weight[a] и cost[b]/weight[b] без деления
+    private static int compareRatio(int[] cost, int[] weight, int a, int b) {
+        return Long.compare((long) cost[a] * weight[b], (long) cost[b] * weight[a]);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
     public static void main(String[] args) throws FileNotFoundException {
         long startTime = System.currentTimeMillis();
         String root=System.getProperty("user.dir")+"/src/";
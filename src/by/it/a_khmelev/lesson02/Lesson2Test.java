@@ -1,8 +1,12 @@
 package by.it.a_khmelev.lesson02;
 
+import by.it.a_khmelev.common.FastInput;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertTrue;
@@ -27,6 +31,23 @@ public class Lesson2Test {
         assertTrue("slowA failed", ok);
     }
 
+    @Test
+    public void A_VideoRegistratorBulk() {
+        A_VideoRegistrator instance=new A_VideoRegistrator();
+        double[] events=new double[]{1, 1.1, 1.6, 2.2, 2.4, 2.7, 3.9, 8.1, 9.1, 5.5, 3.7};
+        double[] starts=new double[events.length];
+        int count=instance.calcStartTimes(events,1,starts);
+        boolean ok=Arrays.toString(Arrays.copyOf(starts,count)).equals("[1.0, 2.2, 3.7, 5.5, 8.1]");
+        assertTrue("A bulk failed", ok);
+
+        A_VideoRegistrator.ChunkedRegistrator registrator=new A_VideoRegistrator.ChunkedRegistrator(1);
+        List<Double> streamed=new ArrayList<>();
+        registrator.accept(new double[]{1.6, 1, 2.2, 1.1}, 0, 4, streamed::add);
+        registrator.accept(new double[]{3.7, 2.7, 2.4}, 0, 3, streamed::add);
+        registrator.accept(new double[]{9.1, 5.5, 8.1, 3.9}, 0, 4, streamed::add);
+        assertTrue("A stream failed", streamed.toString().equals("[1.0, 2.2, 3.7, 5.5, 8.1]"));
+    }
+
     @Test
     public void B_Sheduler() {
         B_Sheduler instance = new B_Sheduler();
@@ -42,6 +63,76 @@ public class Lesson2Test {
         boolean ok=starts.toString().equals("[(0:1), (1:2), (2:3), (3:5), (6:7), (7:9)]");
         assertTrue("B_Sheduler failed", ok);
     }
+    @Test
+    public void B_ShedulerRooms() {
+        B_Sheduler instance = new B_Sheduler();
+        java.util.Random random = new java.util.Random(7);
+        for (int test = 0; test < 200; test++) {
+            int n = 1 + random.nextInt(8);
+            int[] start = new int[n], stop = new int[n], room = new int[n];
+            for (int i = 0; i < n; i++) {
+                start[i] = random.nextInt(10);
+                stop[i] = start[i] + 1 + random.nextInt(4);
+            }
+            //минимум аудиторий равен наибольшему числу одновременно идущих событий
+            int rooms = instance.calcMinRooms(start, stop, room);
+            int overlap = 0;
+            for (int t = 0; t < 14; t++) {
+                int now = 0;
+                for (int i = 0; i < n; i++) if (start[i] <= t && t < stop[i]) now++;
+                overlap = Math.max(overlap, now);
+            }
+            assertTrue("B rooms failed", rooms == overlap && compatible(start, stop, room));
+
+            int k = 1 + random.nextInt(2);
+            int count = instance.calcStartTimes(start, stop, k, room);
+            assertTrue("B k-rooms failed", count == bruteForce(start, stop, k, new int[n], 0) && compatible(start, stop, room));
+        }
+    }
+
+    @Test
+    public void B_ShedulerOnline() {
+        OnlineSheduler sheduler = new OnlineSheduler();
+        B_Sheduler.Event[] events = {new B_Sheduler.Event(0, 3), new B_Sheduler.Event(0, 1), new B_Sheduler.Event(1, 2), new B_Sheduler.Event(3, 5),
+                new B_Sheduler.Event(1, 3), new B_Sheduler.Event(1, 3), new B_Sheduler.Event(1, 3), new B_Sheduler.Event(3, 6),
+                new B_Sheduler.Event(2, 7), new B_Sheduler.Event(2, 3), new B_Sheduler.Event(2, 7), new B_Sheduler.Event(7, 9),
+                new B_Sheduler.Event(3, 5), new B_Sheduler.Event(2, 4), new B_Sheduler.Event(2, 3), new B_Sheduler.Event(3, 7),
+                new B_Sheduler.Event(4, 5), new B_Sheduler.Event(6, 7), new B_Sheduler.Event(6, 9), new B_Sheduler.Event(7, 9),
+                new B_Sheduler.Event(8, 9), new B_Sheduler.Event(4, 6), new B_Sheduler.Event(8, 10), new B_Sheduler.Event(7, 10)
+        };
+        for (B_Sheduler.Event event : events) sheduler.addEvent(event);
+        assertTrue("B online failed", sheduler.query(0, 10).toString().equals("[(0:1), (1:2), (2:3), (3:5), (6:7), (7:9)]"));
+
+        assertTrue("B online cancel failed", sheduler.cancelEvent(new B_Sheduler.Event(6, 7)));
+        assertTrue("B online cancel failed 2", !sheduler.cancelEvent(new B_Sheduler.Event(6, 7)));
+        assertTrue("B online failed 2", sheduler.query(0, 10).toString().equals("[(0:1), (1:2), (2:3), (3:5), (6:9)]"));
+        sheduler.addEvent(new B_Sheduler.Event(5, 5));
+        sheduler.addEvent(new B_Sheduler.Event(5, 5));
+        assertTrue("B online failed 3", sheduler.query(3, 8).toString().equals("[(3:5), (5:5), (5:5)]"));
+        assertTrue("B online size failed", sheduler.size() == 25);
+    }
+
+    private static boolean compatible(int[] start, int[] stop, int[] room) {
+        for (int i = 0; i < start.length; i++)
+            for (int j = i + 1; j < start.length; j++)
+                if (room[i] >= 0 && room[i] == room[j] && start[i] < stop[j] && start[j] < stop[i]) return false;
+        return true;
+    }
+
+    private static int bruteForce(int[] start, int[] stop, int k, int[] room, int i) {
+        if (i == start.length) {
+            int count = 0;
+            for (int r : room) if (r >= 0) count++;
+            return compatible(start, stop, room) ? count : -1;
+        }
+        int best = -1;
+        for (int r = -1; r < k; r++) {
+            room[i] = r;
+            best = Math.max(best, bruteForce(start, stop, k, room, i + 1));
+        }
+        return best;
+    }
+
     @Test
     public void C_GreedyKnapsack() throws Exception {
         String root=System.getProperty("user.dir")+"/src/";
@@ -51,4 +142,60 @@ public class Lesson2Test {
         assertTrue("B_Sheduler failed", ok);
     }
 
+    @Test
+    public void C_GreedyKnapsackLinear() throws Exception {
+        String root=System.getProperty("user.dir")+"/src/";
+        File f=new File(root+"by/it/a_khmelev/lesson02/greedyKnapsack.txt");
+        double costFinal=new C_GreedyKnapsack().calcLinear(f, false);
+        assertTrue("C linear failed", costFinal==200);
+
+        java.util.Random random=new java.util.Random(3);
+        for (int test = 0; test < 300; test++) {
+            int n=1+random.nextInt(30);
+            int[] cost=new int[n], weight=new int[n];
+            Integer[] order=new Integer[n];
+            for (int i = 0; i < n; i++) {
+                cost[i]=random.nextInt(20);
+                weight[i]=i%5==0 ? 0 : 1+random.nextInt(9);
+                order[i]=i;
+            }
+            int W=random.nextInt(60);
+            //эталон: сортировка по удельной стоимости
+            Arrays.sort(order, (a, b) -> weight[a]==0 || weight[b]==0 ? Integer.compare(weight[a], weight[b])
+                    : Long.compare((long) cost[b] * weight[a], (long) cost[a] * weight[b]));
+            double expected=0;
+            double left=W;
+            for (int i : order) {
+                if (weight[i]==0) expected+=cost[i];
+                else if (left>0) {
+                    double part=Math.min(left, weight[i]);
+                    expected+=cost[i]*part/weight[i];
+                    left-=part;
+                }
+            }
+            assertTrue("C linear failed " + test, Math.abs(expected-C_GreedyKnapsack.maxCost(cost, weight, W))<1e-9);
+        }
+    }
+
+    //C_GreedyKnapsack - первая задача, которая читает ввод через FastInput
+    @Test
+    public void FastInputOverflow() {
+        FastInput input=new FastInput(new ByteArrayInputStream(
+                "9223372036854775807 -9223372036854775808 2147483647".getBytes()));
+        assertTrue("FastInput max failed", input.nextLong()==Long.MAX_VALUE);
+        assertTrue("FastInput min failed", input.nextLong()==Long.MIN_VALUE);
+        assertTrue("FastInput int failed", input.nextInt()==Integer.MAX_VALUE);
+        String[] overflow={"9223372036854775808", "-9223372036854775809", "99999999999999999999", "4294967296"};
+        for (int i = 0; i < overflow.length; i++) {
+            input=new FastInput(new ByteArrayInputStream(overflow[i].getBytes()));
+            boolean thrown=false;
+            try {
+                if (i<3) input.nextLong();
+                else input.nextInt();
+            } catch (NumberFormatException e) {
+                thrown=true;
+            }
+            assertTrue("FastInput overflow not detected " + overflow[i], thrown);
+        }
+    }
 }
@@ -0,0 +1,200 @@
+package by.it.a_khmelev.lesson02;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Долгоживущий вариант B_Sheduler: события добавляются и отменяются по одному,
+а наибольший набор непересекающихся событий для периода [from, to] запрашивается
+в любой момент (начало и конец событий могут совпадать).
+
+События хранятся в декартовом дереве (treap) по ключу (start, stop).
+Каждый узел помнит узел своего поддерева с наименьшим концом.
+Жадный выбор "событие с самым ранним концом среди начавшихся не раньше cur"
+- это один спуск по дереву за O(log n), поэтому:
+    addEvent / cancelEvent  - O(log n),
+    query                   - O(k log n), где k - размер ответа,
+и полная пересортировка всех событий не нужна.
+*/
+
+public class OnlineSheduler {
+
+    private class Node {
+        final long key;         //(start, stop) в одном long, порядок как у пары
+        final int start;
+        final int stop;
+        final int priority = random.nextInt();
+        int count = 1;          //одинаковые события хранятся в одном узле
+        Node left;
+        Node right;
+        Node best;              //узел поддерева с наименьшим (stop, key)
+
+        Node(int start, int stop) {
+            this.key = key(start, stop);
+            this.start = start;
+            this.stop = stop;
+            this.best = this;
+        }
+
+        void update() {
+            best = this;
+            if (left != null && earlier(left.best, best)) best = left.best;
+            if (right != null && earlier(right.best, best)) best = right.best;
+        }
+    }
+
+    private final Random random = new Random();
+    private Node root;
+    private int size;
+
+    public static void main(String[] args) {
+        OnlineSheduler sheduler = new OnlineSheduler();
+        int n = 1_000_000;
+        Random random = new Random(1);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            int start = random.nextInt(n);
+            sheduler.addEvent(new B_Sheduler.Event(start, start + 1 + random.nextInt(100)));
+        }
+        System.out.printf("events=%d add time=%d\n", n, System.currentTimeMillis() - startTime);
+
+        //несколько изменений в секунду и запросы по небольшим окнам
+        startTime = System.currentTimeMillis();
+        int selected = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int start = random.nextInt(n);
+            B_Sheduler.Event event = new B_Sheduler.Event(start, start + 1 + random.nextInt(100));
+            sheduler.addEvent(event);
+            selected += sheduler.query(start, start + 1000).size();
+            sheduler.cancelEvent(event);
+        }
+        System.out.printf("10000 x (add, query, cancel) selected=%d time=%d\n", selected, System.currentTimeMillis() - startTime);
+    }
+
+    void addEvent(B_Sheduler.Event event) {
+        root = insert(root, event.start, event.stop);
+        size++;
+    }
+
+    //отменяет одно событие с такими же началом и концом, false - если такого нет
+    boolean cancelEvent(B_Sheduler.Event event) {
+        int before = size;
+        root = remove(root, key(event.start, event.stop));
+        return size < before;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //наибольший набор непересекающихся событий в периоде [from, to] (включительно)
+    List<B_Sheduler.Event> query(int from, int to) {
+        List<B_Sheduler.Event> result = new ArrayList<>();
+        long bound = key(from, Integer.MIN_VALUE); //берем только ключи не меньше bound
+        while (true) {
+            Node next = earliestFrom(root, bound);
+            if (next == null || next.stop > to) break;
+            if (next.start == next.stop) {
+                //событие нулевой длины не мешает своим копиям
+                for (int i = 0; i < next.count; i++) result.add(new B_Sheduler.Event(next.start, next.stop));
+                if (next.key == Long.MAX_VALUE) break;
+                bound = next.key + 1;
+            } else {
+                result.add(new B_Sheduler.Event(next.start, next.stop));
+                bound = key(next.stop, Integer.MIN_VALUE);
+            }
+        }
+        return result;
+    }
+
+    //узел с наименьшим концом среди узлов с ключом не меньше bound
+    private Node earliestFrom(Node node, long bound) {
+        Node result = null;
+        while (node != null) {
+            if (node.key < bound) {
+                node = node.right;
+            } else {
+                //узел и все его правое поддерево подходят целиком
+                if (result == null || earlier(node, result)) result = node;
+                if (node.right != null && earlier(node.right.best, result)) result = node.right.best;
+                node = node.left;
+            }
+        }
+        return result;
+    }
+
+    private Node insert(Node node, int start, int stop) {
+        if (node == null) return new Node(start, stop);
+        long key = key(start, stop);
+        if (key == node.key) {
+            node.count++;
+            return node;
+        }
+        if (key < node.key) {
+            node.left = insert(node.left, start, stop);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, start, stop);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node remove(Node node, long key) {
+        if (node == null) return null;
+        if (key < node.key) {
+            node.left = remove(node.left, key);
+        } else if (key > node.key) {
+            node.right = remove(node.right, key);
+        } else {
+            size--;
+            if (--node.count > 0) return node;
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    //слияние двух деревьев, все ключи left меньше ключей right
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        node.update();
+        top.update();
+        return top;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        node.update();
+        top.update();
+        return top;
+    }
+
+    private static boolean earlier(Node a, Node b) {
+        return a.stop < b.stop || (a.stop == b.stop && a.key < b.key);
+    }
+
+    //пара (start, stop) в одном long с тем же порядком, что у пары
+    private static long key(int start, int stop) {
+        return ((long) start << 32) | ((stop ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+}
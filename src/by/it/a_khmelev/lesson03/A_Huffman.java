@@ -1,5 +1,7 @@
 package by.it.a_khmelev.lesson03;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
@@ -113,7 +115,7 @@ public class A_Huffman {
     //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
     String encode(File file) throws FileNotFoundException {
         //прочитаем строку для кодирования из тестового файла
-        Scanner scanner = new Scanner(file);
+        FastInput scanner = new FastInput(file);
         String s = scanner.next();
 
         //все комментарии от тестового решения были оставлены т.к. это задание A.
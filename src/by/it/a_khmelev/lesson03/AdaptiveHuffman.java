@@ -0,0 +1,393 @@
+package by.it.a_khmelev.lesson03;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Lesson 3. Адаптивный (однопроходный) код Хаффмана, алгоритм Виттера (Vitter, алгоритм Λ).
+//
+// A_Huffman и HuffmanEncoder сначала считают частоты по всему входу,
+// поэтому не могут выдать ни одного бита, пока не увидят конец.
+// Здесь кодер и декодер ведут одинаковое дерево и перестраивают его
+// после каждого символа, так что поток кодируется за один проход,
+// без таблицы частот в заголовке и с памятью O(алфавит) на любую длину входа.
+//
+// Дерево хранится на массивах. Узлы пронумерованы неявно (rank):
+//      - веса по возрастанию номера не убывают;
+//      - среди узлов одного веса листья идут раньше внутренних;
+//      - родитель старше детей, корень - старший номер.
+// "Блок" - узлы одного веса и одного типа (лист/внутренний).
+// Новый символ кодируется путем к листу NYT (not yet transmitted, вес 0)
+// и 9 битами самого символа; значение 256 после NYT - конец потока.
+// Бит 0 - левый ребенок, 1 - правый.
+
+public class AdaptiveHuffman {
+
+    static final int ALPHABET = 256;
+    static final int END_OF_STREAM = ALPHABET;
+    static final int RAW_BITS = 9;
+    private static final int NODES = 2 * ALPHABET + 1;
+
+    private final long[] weight = new long[NODES];
+    private final int[] parent = new int[NODES];
+    private final int[] left = new int[NODES];      //-1 у листа
+    private final int[] right = new int[NODES];
+    private final int[] symbol = new int[NODES];
+    private final int[] rank = new int[NODES];      //узел -> неявный номер
+    private final int[] nodeAt = new int[NODES];    //неявный номер -> узел
+    private final int[] leafOf = new int[ALPHABET]; //символ -> лист, -1 если еще не встречался
+    private int nyt;
+    private int root;
+    private int lowest;                             //номер NYT, новые узлы получают номера ниже
+    private int allocated;
+
+    AdaptiveHuffman() {
+        java.util.Arrays.fill(leafOf, -1);
+        root = nyt = allocated++;
+        lowest = NODES - 1;
+        rank[root] = lowest;
+        nodeAt[lowest] = root;
+        parent[root] = -1;
+        left[root] = right[root] = -1;
+        symbol[root] = -1;
+    }
+
+    public static void main(String[] args) throws IOException {
+        //64 МБ "журнала": строки из небольшого словаря
+        String[] words = {"INFO", "WARN", "ERROR", "request", "user=", "id=", "took", "ms", "ok", "failed", "\n"};
+        java.util.Random random = new java.util.Random(1);
+        java.io.ByteArrayOutputStream text = new java.io.ByteArrayOutputStream();
+        while (text.size() < 1 << 26) {
+            String word = words[Integer.numberOfTrailingZeros(random.nextInt() | 0x400)];
+            text.write(word.getBytes(), 0, word.length());
+            text.write(' ' + random.nextInt(2) * ('0' - ' ' + random.nextInt(10)));
+        }
+        byte[] data = text.toByteArray();
+
+        java.io.ByteArrayOutputStream packed = new java.io.ByteArrayOutputStream();
+        long startTime = System.currentTimeMillis();
+        try (Encoder encoder = new Encoder(packed)) {
+            encoder.write(data);
+        }
+        System.out.printf("encode %d -> %d bytes time=%d\n", data.length, packed.size(), System.currentTimeMillis() - startTime);
+        HuffmanEncoder twoPass = new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, data.length));
+        System.out.printf("two-pass huffman: %d bytes + %d bytes of code lengths\n",
+                (twoPass.encodedBits(data, 0, data.length) + 7) / 8, ALPHABET);
+
+        startTime = System.currentTimeMillis();
+        byte[] restored;
+        try (Decoder decoder = new Decoder(new java.io.ByteArrayInputStream(packed.toByteArray()))) {
+            restored = decoder.readAllBytes();
+        }
+        System.out.printf("decode time=%d ok=%b\n", System.currentTimeMillis() - startTime, java.util.Arrays.equals(data, restored));
+    }
+
+    //кодирует символ: вызывает bits.write для каждого бита, затем обновляет дерево
+    private void encode(int value, BitWriter bits) throws IOException {
+        int node = value < ALPHABET && leafOf[value] >= 0 ? leafOf[value] : nyt;
+        //путь от листа к корню, биты выводятся в обратном порядке
+        long[] path = pathBuffer;
+        int length = 0;
+        for (int x = node; parent[x] >= 0; x = parent[x], length++) {
+            if (right[parent[x]] == x) path[length >>> 6] |= 1L << (length & 63);
+            else path[length >>> 6] &= ~(1L << (length & 63));
+        }
+        //обычно путь короче 32 бит и уходит одной записью
+        for (int i = length - 1; i >= 0; ) {
+            int chunk = Math.min(i + 1, 32);
+            int code = 0;
+            for (int j = 0; j < chunk; j++, i--) code = (code << 1) | (int) (path[i >>> 6] >>> (i & 63)) & 1;
+            bits.write(code, chunk);
+        }
+        if (node == nyt) bits.write(value, RAW_BITS);
+        if (value < ALPHABET) update(value);
+    }
+
+    private final long[] pathBuffer = new long[(NODES + 63) / 64];
+
+    //декодирует символ (или END_OF_STREAM) и обновляет дерево, -1 если вход кончился раньше
+    private int decode(BitReader bits) throws IOException {
+        int x = root;
+        while (left[x] >= 0) {
+            int bit = bits.read(1);
+            if (bit < 0) return -1;
+            x = bit == 0 ? left[x] : right[x];
+        }
+        int value;
+        if (x == nyt) {
+            value = bits.read(RAW_BITS);
+            if (value < 0) return -1;
+            if (value > END_OF_STREAM) throw new IOException("corrupted adaptive huffman stream");
+            if (value == END_OF_STREAM) return END_OF_STREAM;
+        } else {
+            value = symbol[x];
+        }
+        update(value);
+        return value;
+    }
+
+    //перестройка дерева после очередного символа (процедура Update у Виттера)
+    void update(int value) {
+        int leafToIncrement = -1;
+        int q = leafOf[value];
+        if (q < 0) {
+            //NYT становится внутренним узлом с детьми: новый NYT (слева) и лист символа (справа)
+            int leaf = allocated++;
+            int zero = allocated++;
+            q = nyt;
+            left[q] = zero;
+            right[q] = leaf;
+            for (int node : new int[]{leaf, zero}) {
+                parent[node] = q;
+                left[node] = right[node] = -1;
+                weight[node] = 0;
+            }
+            symbol[leaf] = value;
+            symbol[zero] = -1;
+            leafOf[value] = leaf;
+            rank[leaf] = lowest - 1;
+            nodeAt[lowest - 1] = leaf;
+            rank[zero] = lowest - 2;
+            nodeAt[lowest - 2] = zero;
+            lowest -= 2;
+            nyt = zero;
+            leafToIncrement = leaf;
+        } else {
+            int leader = nodeAt[blockEnd(q)];
+            if (leader != q) swap(q, leader);
+            //брат NYT увеличивается последним: иначе он "обогнал" бы собственного родителя
+            if (parent[q] == parent[nyt]) {
+                leafToIncrement = q;
+                q = parent[q];
+            }
+        }
+        while (q >= 0) q = slideAndIncrement(q);
+        if (leafToIncrement >= 0) slideAndIncrement(leafToIncrement);
+    }
+
+    //сдвигает p выше следующего блока (если нужно), увеличивает вес,
+    //возвращает следующий узел, вес которого надо увеличить
+    private int slideAndIncrement(int p) {
+        long w = weight[p];
+        boolean leaf = left[p] < 0;
+        int from = rank[p];
+        int to = blockEnd(p);
+        //лист обгоняет внутренние узлы того же веса, внутренний - листья веса w+1
+        long next = leaf ? w : w + 1;
+        int end = to;
+        while (end + 1 < NODES && weight[nodeAt[end + 1]] == next && (left[nodeAt[end + 1]] < 0) != leaf) end++;
+        int formerParent = parent[p];
+        if (end > to) {
+            //p занимает место nodeAt[end], остальные сдвигаются на одну позицию вниз
+            int slotParent = parent[nodeAt[end]];
+            boolean slotRight = right[slotParent] == nodeAt[end];
+            for (int r = end; r > from; r--) {
+                int below = nodeAt[r - 1];
+                int moved = nodeAt[r];
+                attach(moved, parent[below], right[parent[below]] == below);
+            }
+            for (int r = from; r < end; r++) {
+                nodeAt[r] = nodeAt[r + 1];
+                rank[nodeAt[r]] = r;
+            }
+            attach(p, slotParent, slotRight);
+            rank[p] = end;
+            nodeAt[end] = p;
+        }
+        weight[p] = w + 1;
+        return leaf ? parent[p] : formerParent;
+    }
+
+    //последний (старший) номер блока узла x
+    private int blockEnd(int x) {
+        boolean leaf = left[x] < 0;
+        int r = rank[x];
+        while (r + 1 < NODES && weight[nodeAt[r + 1]] == weight[x] && (left[nodeAt[r + 1]] < 0) == leaf) r++;
+        return r;
+    }
+
+    //меняет местами в дереве два узла, ни один из которых не предок другого
+    private void swap(int a, int b) {
+        int parentA = parent[a];
+        boolean rightA = right[parentA] == a;
+        int parentB = parent[b];
+        boolean rightB = right[parentB] == b;
+        attach(a, parentB, rightB);
+        attach(b, parentA, rightA);
+        int rankA = rank[a];
+        rank[a] = rank[b];
+        rank[b] = rankA;
+        nodeAt[rank[a]] = a;
+        nodeAt[rank[b]] = b;
+    }
+
+    private void attach(int node, int newParent, boolean asRight) {
+        parent[node] = newParent;
+        if (asRight) right[newParent] = node;
+        else left[newParent] = node;
+    }
+
+    //проверка инвариантов дерева (для тестов)
+    boolean isValid() {
+        for (int r = lowest; r < NODES; r++) {
+            int x = nodeAt[r];
+            if (rank[x] != r) return false;
+            if (left[x] >= 0) {
+                if (parent[left[x]] != x || parent[right[x]] != x) return false;
+                if (weight[x] != weight[left[x]] + weight[right[x]]) return false;
+                if (rank[left[x]] >= r || rank[right[x]] >= r) return false;
+            }
+            if (r > lowest) {
+                int y = nodeAt[r - 1];
+                if (weight[y] > weight[x]) return false;
+                if (weight[y] == weight[x] && left[y] >= 0 && left[x] < 0) return false;
+            }
+        }
+        return nodeAt[NODES - 1] == root && nodeAt[lowest] == nyt && parent[root] < 0;
+    }
+
+    //Кодер: байты пишутся в underlying сразу, как только накопится целый байт кода.
+    //close() дописывает признак конца потока и дополняет последний байт нулями.
+    static class Encoder extends OutputStream {
+        private final AdaptiveHuffman tree = new AdaptiveHuffman();
+        private final BitWriter bits;
+        private boolean closed;
+
+        Encoder(OutputStream out) {
+            bits = new BitWriter(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            tree.encode(b & 0xFF, bits);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) tree.encode(b[i] & 0xFF, bits);
+        }
+
+        //сбрасывает только целые байты: неполный байт нельзя дополнить, не испортив поток
+        @Override
+        public void flush() throws IOException {
+            bits.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            tree.encode(END_OF_STREAM, bits);
+            bits.close();
+        }
+    }
+
+    static class Decoder extends InputStream {
+        private final AdaptiveHuffman tree = new AdaptiveHuffman();
+        private final BitReader bits;
+        private boolean finished;
+
+        Decoder(InputStream in) {
+            bits = new BitReader(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (finished) return -1;
+            int value = tree.decode(bits);
+            if (value < 0) throw new IOException("truncated adaptive huffman stream");
+            if (value == END_OF_STREAM) {
+                finished = true;
+                return -1;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            int count = 0;
+            while (count < len) {
+                int value = read();
+                if (value < 0) break;
+                b[off + count++] = (byte) value;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            bits.in.close();
+        }
+    }
+
+    //биты старшим первым через буфер на 64 КБ
+    private static class BitWriter {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private long acc;       //действительны младшие count бит, count < 8 между вызовами
+        private int count;
+
+        BitWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        //младшие length (до 32) бит value
+        void write(int value, int length) throws IOException {
+            acc = (acc << length) | (value & (-1L >>> (64 - length)));
+            count += length;
+            while (count >= 8) {
+                count -= 8;
+                buffer[position++] = (byte) (acc >>> count);
+                if (position == buffer.length) flush();
+            }
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        }
+
+        void close() throws IOException {
+            if (count > 0) write(0, 8 - count);
+            flush();
+            out.close();
+        }
+    }
+
+    private static class BitReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private int acc;
+        private int count;
+
+        BitReader(InputStream in) {
+            this.in = in;
+        }
+
+        //length бит старшим первым или -1, если вход кончился
+        int read(int length) throws IOException {
+            int value = 0;
+            for (int i = 0; i < length; i++) {
+                if (count == 0) {
+                    if (position == limit) {
+                        limit = in.read(buffer, 0, buffer.length);
+                        position = 0;
+                        if (limit <= 0) {
+                            limit = 0;
+                            return -1;
+                        }
+                    }
+                    acc = buffer[position++] & 0xFF;
+                    count = 8;
+                }
+                value = (value << 1) | ((acc >>> --count) & 1);
+            }
+            return value;
+        }
+    }
+}
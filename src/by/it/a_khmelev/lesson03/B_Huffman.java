@@ -1,8 +1,9 @@
 package by.it.a_khmelev.lesson03;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
 
 // Lesson 3. B_Huffman.
 // Восстановите строку по её коду и беспрефиксному коду символов.
@@ -45,7 +46,7 @@ public class B_Huffman {
     String decode(File file) throws FileNotFoundException {
         StringBuilder result=new StringBuilder();
         //прочитаем строку для кодирования из тестового файла
-        Scanner scanner = new Scanner(file);
+        FastInput scanner = new FastInput(file);
         Integer count = scanner.nextInt();
         Integer length = scanner.nextInt();
         //!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! НАЧАЛО ЗАДАЧИ !!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!1
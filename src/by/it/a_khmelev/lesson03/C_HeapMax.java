@@ -1,11 +1,12 @@
 package by.it.a_khmelev.lesson03;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 // Lesson 3. C_Heap.
 // Задача: построить max-кучу = пирамиду = бинарное сбалансированное дерево на массиве.
@@ -69,21 +70,17 @@ public class C_HeapMax {
         Long maxValue=0L;
         MaxHeap heap = new MaxHeap();
         //прочитаем строку для кодирования из тестового файла
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         Integer count = scanner.nextInt();
-        for (int i = 0; i < count; ) {
-            String s = scanner.nextLine();
+        for (int i = 0; i < count; i++) {
+            String s = scanner.next();
             if (s.equalsIgnoreCase("extractMax")) {
                 Long res=heap.extractMax();
                 if (res!=null && res>maxValue) maxValue=res;
                 System.out.println();
-                i++;
             }
-            if (s.contains(" ")) {
-                String[] p = s.split(" ");
-                if (p[0].equalsIgnoreCase("insert"))
-                    heap.insert(Long.parseLong(p[1]));
-                i++;
+            if (s.equalsIgnoreCase("insert")) {
+                heap.insert(scanner.nextLong());
             //System.out.println(heap); //debug
             }
         }
@@ -0,0 +1,298 @@
+package by.it.a_khmelev.lesson03;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Lesson 3. Очередь с приоритетами во внешней памяти (max).
+//
+// C_HeapMax держит в памяти все вставленные значения. Здесь память ограничена:
+//      - в памяти куча LongHeap не больше memoryValues элементов;
+//      - когда она заполнена, все ее содержимое по убыванию сбрасывается
+//        во временный файл ("серия", run), и куча начинается заново;
+//      - серии читаются лениво окнами через отображение файла в память
+//        (WINDOW значений на серию), их головы лежат в IndexedMaxHeap;
+//      - extractMax берет больший из вершины кучи и лучшей головы серий;
+//      - серии сливаются по уровням, как в LSM-дереве: сброс кучи - серия
+//        уровня 0; как только на уровне набирается LEVEL_FAN_IN серий, они
+//        сливаются в одну серию следующего уровня. Большие серии, полученные
+//        раньше, в слияниях младших уровней не участвуют, поэтому каждое значение
+//        переписывается на диск O(log(числа сбросов)) раз, а не при каждом слиянии.
+// Итого серий не больше (LEVEL_FAN_IN - 1) на уровень, уровней log по основанию
+// LEVEL_FAN_IN от числа сбросов, и в куче Java memoryValues значений плюс
+// по окну на серию.
+// Ошибки ввода-вывода приходят как UncheckedIOException (как в FastInput).
+
+public class ExternalMaxQueue implements Closeable {
+
+    static final int LEVEL_FAN_IN = 8;
+    private static final int WINDOW = 1 << 13;    //значений в окне чтения серии (64 КБ)
+
+    private final int memoryValues;
+    private final File directory;
+    private final LongHeap heap;
+    private final IndexedMaxHeap heads = new IndexedMaxHeap(LEVEL_FAN_IN);
+    private Run[] runByHandle = new Run[LEVEL_FAN_IN];
+    private int[] runsAtLevel = new int[4];
+    private int runs;
+    private long size;
+    private int spills;
+    private long written;       //сколько значений записано на диск за все время
+
+    ExternalMaxQueue(int memoryValues) {
+        this(memoryValues, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    ExternalMaxQueue(int memoryValues, File directory) {
+        if (memoryValues < 1) throw new IllegalArgumentException("memoryValues must be positive: " + memoryValues);
+        this.memoryValues = memoryValues;
+        this.directory = directory;
+        this.heap = new LongHeap(4, memoryValues);
+    }
+
+    public static void main(String[] args) throws IOException {
+        //5*10^7 вставок (400 МБ значений) при куче в 10^6 значений, затем половина извлекается
+        int operations = 50_000_000;
+        java.util.Random random = new java.util.Random(1);
+        long startTime = System.currentTimeMillis();
+        long checksum = 0;
+        try (ExternalMaxQueue queue = new ExternalMaxQueue(1_000_000)) {
+            for (int i = 0; i < operations; i++) {
+                queue.insert(random.nextInt(1_000_000_001));
+                if (i % 4 == 3) checksum += queue.extractMax();
+            }
+            System.out.printf("insert %d values time=%d spills=%d runs=%d size=%d written=%d\n", operations,
+                    System.currentTimeMillis() - startTime, queue.spills, queue.runs, queue.size(), queue.written);
+            for (int i = 0; i < operations / 4; i++) checksum += queue.extractMax();
+            System.out.printf("total time=%d checksum=%d used memory=%d MB\n", System.currentTimeMillis() - startTime, checksum,
+                    (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long writtenValues() {
+        return written;
+    }
+
+    int runs() {
+        return runs;
+    }
+
+    void insert(long value) {
+        if (heap.size() == memoryValues) spill();
+        heap.insert(value);
+        size++;
+    }
+
+    long peekMax() {
+        if (size == 0) throw new NoSuchElementException("queue is empty");
+        if (heads.isEmpty()) return heap.peekMax();
+        long head = heads.get(heads.peekMax());
+        return heap.isEmpty() || head > heap.peekMax() ? head : heap.peekMax();
+    }
+
+    long extractMax() {
+        if (size == 0) throw new NoSuchElementException("queue is empty");
+        size--;
+        if (heads.isEmpty() || (!heap.isEmpty() && heap.peekMax() >= heads.get(heads.peekMax()))) return heap.extractMax();
+        return nextFromRuns();
+    }
+
+    @Override
+    public void close() {
+        for (int handle = 0; handle < runByHandle.length; handle++) {
+            if (runByHandle[handle] != null) {
+                runByHandle[handle].delete();
+                runByHandle[handle] = null;
+            }
+        }
+        runs = 0;
+    }
+
+    //максимум среди голов серий: извлекается, на место ставится следующий элемент серии
+    private long nextFromRuns() {
+        int handle = heads.peekMax();
+        Run run = runByHandle[handle];
+        long value = heads.get(handle);
+        if (run.hasNext()) {
+            heads.changeKey(handle, run.next());
+        } else {
+            heads.remove(handle);
+            runByHandle[handle] = null;
+            runsAtLevel[run.level]--;
+            run.delete();
+            runs--;
+        }
+        return value;
+    }
+
+    //сбрасывает кучу во временный файл по убыванию
+    private void spill() {
+        spills++;
+        long[] buffer = new long[Math.min(WINDOW, heap.size())];
+        try (RunWriter writer = new RunWriter()) {
+            while (!heap.isEmpty()) {
+                int k = heap.extractMax(buffer, buffer.length);
+                writer.write(buffer, k);
+            }
+            addRun(writer.finish(0));
+        }
+        for (int level = 0; runsAtLevel[level] == LEVEL_FAN_IN; level++) mergeLevel(level);
+    }
+
+    //сливает оставшиеся части всех серий уровня level в одну серию уровня level + 1
+    private void mergeLevel(int level) {
+        IndexedMaxHeap merging = new IndexedMaxHeap(LEVEL_FAN_IN);
+        Run[] mergingRuns = new Run[LEVEL_FAN_IN];
+        for (int handle = 0; handle < runByHandle.length; handle++) {
+            Run run = runByHandle[handle];
+            if (run == null || run.level != level) continue;
+            int local = merging.insert(heads.get(handle));
+            if (local >= mergingRuns.length) mergingRuns = Arrays.copyOf(mergingRuns, 2 * mergingRuns.length);
+            mergingRuns[local] = run;
+            heads.remove(handle);
+            runByHandle[handle] = null;
+            runs--;
+        }
+        runsAtLevel[level] = 0;
+        long[] buffer = new long[WINDOW];
+        try (RunWriter writer = new RunWriter()) {
+            while (!merging.isEmpty()) {
+                int k = 0;
+                while (k < buffer.length && !merging.isEmpty()) {
+                    int local = merging.peekMax();
+                    buffer[k++] = merging.get(local);
+                    Run run = mergingRuns[local];
+                    if (run.hasNext()) {
+                        merging.changeKey(local, run.next());
+                    } else {
+                        merging.remove(local);
+                        run.delete();
+                    }
+                }
+                writer.write(buffer, k);
+            }
+            addRun(writer.finish(level + 1));
+        }
+    }
+
+    private void addRun(Run run) {
+        if (!run.hasNext()) {
+            run.delete();
+            return;
+        }
+        int handle = heads.insert(run.next());
+        if (handle >= runByHandle.length) runByHandle = Arrays.copyOf(runByHandle, 2 * runByHandle.length);
+        runByHandle[handle] = run;
+        if (run.level + 1 >= runsAtLevel.length) runsAtLevel = Arrays.copyOf(runsAtLevel, 2 * runsAtLevel.length);
+        runsAtLevel[run.level]++;
+        runs++;
+    }
+
+    //запись серии через буфер; finish() открывает ее на чтение
+    private class RunWriter implements Closeable {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocate(8 * WINDOW);
+        private long count;
+        private boolean finished;
+
+        RunWriter() {
+            try {
+                file = File.createTempFile("heap-run", ".bin", directory);
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(long[] values, int count) {
+            bytes.clear();
+            bytes.asLongBuffer().put(values, 0, count);
+            bytes.limit(8 * count);
+            try {
+                while (bytes.hasRemaining()) channel.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.count += count;
+            written += count;
+        }
+
+        Run finish(int level) {
+            finished = true;
+            return new Run(file, channel, count, level);
+        }
+
+        @Override
+        public void close() {
+            if (finished) return;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    //серия на диске, читается окнами по WINDOW значений через отображение в память
+    private static class Run {
+        private final File file;
+        private final FileChannel channel;
+        private final long count;
+        private final int level;
+        private long mapped;        //сколько значений уже отображено
+        private LongBuffer window;
+
+        Run(File file, FileChannel channel, long count, int level) {
+            this.file = file;
+            this.channel = channel;
+            this.count = count;
+            this.level = level;
+        }
+
+        boolean hasNext() {
+            return (window != null && window.hasRemaining()) || mapped < count;
+        }
+
+        long next() {
+            if (window == null || !window.hasRemaining()) {
+                int length = (int) Math.min(WINDOW, count - mapped);
+                try {
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, 8 * mapped, 8L * length).asLongBuffer();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                mapped += length;
+            }
+            return window.get();
+        }
+
+        void delete() {
+            window = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+}
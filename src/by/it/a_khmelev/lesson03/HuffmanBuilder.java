@@ -0,0 +1,168 @@
+package by.it.a_khmelev.lesson03;
+
+// Lesson 3. Построение длин кодов Хаффмана за линейное время.
+//
+// A_Huffman строит дерево из объектов LeafNode/InternalNode через PriorityQueue<Node>.
+// Здесь все на примитивных массивах и без кучи:
+//  1. частоты уже посчитаны в int[] (см. HuffmanEncoder.countFrequencies);
+//  2. символы сортируются по частоте поразрядной сортировкой (4 прохода по 8 бит);
+//  3. дерево строится двумя очередями: в одной отсортированные листья,
+//     в другой внутренние узлы - они рождаются уже в неубывающем порядке весов,
+//     поэтому два минимума всегда лежат в головах очередей, итого O(n);
+//  4. при необходимости длины ограничиваются алгоритмом package-merge
+//     (оптимальный код среди кодов с длиной не больше maxLength).
+// Короткие коды нужны для маленьких таблиц декодера (HuffmanDecoder).
+
+public class HuffmanBuilder {
+
+    public static void main(String[] args) {
+        //частоты Фибоначчи дают самое глубокое дерево: длины до n-1
+        int[] fibonacci = new int[30];
+        fibonacci[0] = fibonacci[1] = 1;
+        for (int i = 2; i < fibonacci.length; i++) fibonacci[i] = fibonacci[i - 1] + fibonacci[i - 2];
+        for (int maxLength : new int[]{64, 15, 8, 5}) {
+            byte[] lengths = codeLengths(fibonacci, maxLength);
+            long cost = 0;
+            int longest = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                cost += (long) lengths[i] * fibonacci[i];
+                longest = Math.max(longest, lengths[i]);
+            }
+            System.out.printf("fibonacci maxLength=%d longest=%d cost=%d\n", maxLength, longest, cost);
+        }
+
+        //много таблиц по 256 символов, как у блоков HuffmanFileCompressor
+        java.util.Random random = new java.util.Random(1);
+        int[][] tables = new int[1000][HuffmanEncoder.ALPHABET];
+        for (int[] table : tables) {
+            for (int i = 0; i < table.length; i++) table[i] = random.nextInt(1 << (1 + random.nextInt(20)));
+        }
+        for (int maxLength : new int[]{64, 12}) {
+            long startTime = System.nanoTime();
+            long checksum = 0;
+            for (int repeat = 0; repeat < 10; repeat++) {
+                for (int[] table : tables) checksum += codeLengths(table, maxLength)[0];
+            }
+            System.out.printf("maxLength=%d %d tables time=%d us per table (checksum %d)\n", maxLength, 10 * tables.length,
+                    (System.nanoTime() - startTime) / 1000 / (10 * tables.length), checksum);
+        }
+    }
+
+    //длины оптимального кода без ограничений. Один встретившийся символ получает код длины 1
+    static byte[] codeLengths(int[] frequencies) {
+        int[] symbols = sortedSymbols(frequencies);
+        int n = symbols.length;
+        byte[] lengths = new byte[frequencies.length];
+        if (n == 0) return lengths;
+        if (n == 1) {
+            lengths[symbols[0]] = 1;
+            return lengths;
+        }
+        //узлы 0..n-1 - листья по возрастанию частоты, n..2n-2 - внутренние по порядку рождения
+        long[] weight = new long[2 * n - 1];
+        int[] parent = new int[2 * n - 1];
+        for (int i = 0; i < n; i++) weight[i] = frequencies[symbols[i]];
+        int leaf = 0;           //голова очереди листьев
+        int inner = n;          //голова очереди внутренних узлов
+        for (int next = n; next < 2 * n - 1; next++) {
+            int a = (leaf < n && (inner == next || weight[leaf] <= weight[inner])) ? leaf++ : inner++;
+            int b = (leaf < n && (inner == next || weight[leaf] <= weight[inner])) ? leaf++ : inner++;
+            weight[next] = weight[a] + weight[b];
+            parent[a] = next;
+            parent[b] = next;
+        }
+        //корень - последний узел, родитель всегда рожден позже ребенка
+        int[] depth = new int[2 * n - 1];
+        for (int node = 2 * n - 3; node >= 0; node--) depth[node] = depth[parent[node]] + 1;
+        for (int i = 0; i < n; i++) lengths[symbols[i]] = (byte) depth[i];
+        return lengths;
+    }
+
+    //длины оптимального кода, в котором ни один код не длиннее maxLength
+    static byte[] codeLengths(int[] frequencies, int maxLength) {
+        byte[] lengths = codeLengths(frequencies);
+        int longest = 0;
+        for (byte length : lengths) longest = Math.max(longest, length);
+        if (longest <= maxLength) return lengths;
+        return packageMerge(frequencies, maxLength);
+    }
+
+    //package-merge: на каждом уровне листья сливаются с "пакетами" (пары соседей
+    //предыдущего уровня). Первые 2n-2 элемента последнего уровня задают код:
+    //длина символа = сколько раз его лист попал в выбранные элементы всех уровней.
+    private static byte[] packageMerge(int[] frequencies, int maxLength) {
+        int[] symbols = sortedSymbols(frequencies);
+        int n = symbols.length;
+        if (maxLength < 1 || (maxLength < 31 && n > 1 << maxLength))
+            throw new IllegalArgumentException(n + " symbols do not fit into codes of length " + maxLength);
+        long[] leaves = new long[n];
+        for (int i = 0; i < n; i++) leaves[i] = frequencies[symbols[i]];
+
+        //leafAt[level][j] - номер листа для j-го элемента уровня или -1 для пакета
+        int[][] leafAt = new int[maxLength][];
+        int[] first = new int[n];
+        for (int i = 0; i < n; i++) first[i] = i;
+        leafAt[0] = first;
+        long[] current = leaves;
+        for (int level = 1; level < maxLength; level++) {
+            int packages = current.length / 2;
+            long[] merged = new long[n + packages];
+            int[] kind = new int[n + packages];
+            int i = 0, p = 0;
+            for (int j = 0; j < merged.length; j++) {
+                long packageWeight = p < packages ? current[2 * p] + current[2 * p + 1] : Long.MAX_VALUE;
+                if (i < n && leaves[i] <= packageWeight) {
+                    merged[j] = leaves[i];
+                    kind[j] = i++;
+                } else {
+                    merged[j] = packageWeight;
+                    kind[j] = -1;
+                    p++;
+                }
+            }
+            current = merged;
+            leafAt[level] = kind;
+        }
+
+        int[] depth = new int[n];
+        int take = 2 * n - 2;
+        for (int level = maxLength - 1; level >= 0 && take > 0; level--) {
+            int packages = 0;
+            for (int j = 0; j < take; j++) {
+                if (leafAt[level][j] >= 0) depth[leafAt[level][j]]++;
+                else packages++;
+            }
+            take = 2 * packages;
+        }
+        byte[] lengths = new byte[frequencies.length];
+        for (int i = 0; i < n; i++) lengths[symbols[i]] = (byte) depth[i];
+        return lengths;
+    }
+
+    //встретившиеся символы по возрастанию частоты (при равенстве - по возрастанию символа).
+    //Поразрядная сортировка LSD, 4 прохода по 8 бит, устойчивая.
+    static int[] sortedSymbols(int[] frequencies) {
+        int n = 0;
+        for (int frequency : frequencies) {
+            if (frequency < 0) throw new IllegalArgumentException("negative frequency: " + frequency);
+            if (frequency > 0) n++;
+        }
+        int[] order = new int[n];
+        int k = 0;
+        for (int symbol = 0; symbol < frequencies.length; symbol++) {
+            if (frequencies[symbol] > 0) order[k++] = symbol;
+        }
+        int[] buffer = new int[n];
+        for (int shift = 0; shift < 32; shift += 8) {
+            int[] count = new int[257];
+            for (int symbol : order) count[((frequencies[symbol] >>> shift) & 0xFF) + 1]++;
+            if (count[1] == n) continue; //во всех частотах этот разряд нулевой
+            for (int d = 0; d < 256; d++) count[d + 1] += count[d];
+            for (int symbol : order) buffer[count[(frequencies[symbol] >>> shift) & 0xFF]++] = symbol;
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,171 @@
+package by.it.a_khmelev.lesson03;
+
+import java.nio.ByteBuffer;
+
+// Lesson 3. Табличное декодирование упакованного кода Хаффмана.
+//
+// B_Huffman восстанавливает строку, проходя по дереву кодов по одному биту
+// строки из символов '0'/'1'. Здесь вход - упакованные биты (как их пишет
+// HuffmanEncoder), а декодирование идет по таблице, индексированной
+// следующими lookupBits (8..12) битами потока:
+//      - запись таблицы сразу дает до трех символов, чьи коды целиком
+//        поместились в эти биты, и сколько бит они заняли;
+//      - если первый код длиннее lookupBits, запись пустая, и символ
+//        ищется каноническим способом (по первому коду каждой длины).
+// Таблицы строятся только по длинам кодов (коды канонические).
+
+public class HuffmanDecoder {
+
+    static final int DEFAULT_LOOKUP_BITS = 10;
+    private static final int MAX_SYMBOLS_PER_ENTRY = 3;
+
+    private final int lookupBits;
+    //запись: (бит << 26) | (символов << 24) | s3 << 16 | s2 << 8 | s1
+    private final int[] table;
+    //запись для одного символа: (длина << 8) | символ, 0 - код длиннее lookupBits
+    private final int[] single;
+
+    //канонический поиск длинных кодов
+    private final int maxLength;
+    private final long[] firstCode;     //первый код данной длины
+    private final int[] firstIndex;     //его место в sorted
+    private final int[] perLength;      //сколько кодов данной длины
+    private final int[] sorted;         //символы по (длина, символ)
+
+    HuffmanDecoder(byte[] lengths) {
+        this(lengths, DEFAULT_LOOKUP_BITS);
+    }
+
+    HuffmanDecoder(byte[] lengths, int lookupBits) {
+        if (lookupBits < 8 || lookupBits > 12)
+            throw new IllegalArgumentException("lookupBits must be in 8..12: " + lookupBits);
+        this.lookupBits = lookupBits;
+        long[] codes = HuffmanEncoder.canonicalCodes(lengths);
+
+        int max = 0;
+        for (byte length : lengths) max = Math.max(max, length);
+        maxLength = max;
+        perLength = new int[max + 1];
+        for (byte length : lengths) if (length > 0) perLength[length]++;
+        firstCode = new long[max + 1];
+        firstIndex = new int[max + 1];
+        int total = 0;
+        for (int length = 1; length <= max; length++) {
+            firstIndex[length] = total;
+            total += perLength[length];
+        }
+        sorted = new int[total];
+        int[] fill = firstIndex.clone();
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0) continue;
+            if (fill[length] == firstIndex[length]) firstCode[length] = codes[symbol];
+            sorted[fill[length]++] = symbol;
+        }
+
+        int size = 1 << lookupBits;
+        single = new int[size];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0 || length > lookupBits) continue;
+            int from = (int) (codes[symbol] << (lookupBits - length));
+            int to = from + (1 << (lookupBits - length));
+            for (int i = from; i < to; i++) single[i] = (length << 8) | symbol;
+        }
+
+        //жадно дописываем символы, пока их коды целиком внутри lookupBits бит
+        table = new int[size];
+        for (int index = 0; index < size; index++) {
+            int used = 0;
+            int count = 0;
+            int symbols = 0;
+            while (count < MAX_SYMBOLS_PER_ENTRY) {
+                int entry = single[(index << used) & (size - 1)];
+                int length = entry >>> 8;
+                if (entry == 0 || used + length > lookupBits) break;
+                symbols |= (entry & 0xFF) << (8 * count);
+                used += length;
+                count++;
+            }
+            table[index] = (used << 26) | (count << 24) | symbols;
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = 1 << 26;
+        byte[] big = new byte[n];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < n; i++) big[i] = (byte) ('a' + Integer.numberOfTrailingZeros(random.nextInt() | 0x8000));
+        HuffmanEncoder encoder = new HuffmanEncoder(HuffmanEncoder.countFrequencies(big, 0, n));
+        byte[] packed = encoder.encode(big);
+        for (int lookupBits = 8; lookupBits <= 12; lookupBits += 2) {
+            HuffmanDecoder decoder = new HuffmanDecoder(encoder.lengths(), lookupBits);
+            long startTime = System.currentTimeMillis();
+            byte[] restored = decoder.decode(packed, n);
+            long time = System.currentTimeMillis() - startTime;
+            System.out.printf("lookupBits=%d decode %d bytes time=%d (%.0f MB/s) ok=%b\n", lookupBits, n, time,
+                    n / 1e3 / Math.max(1, time), java.util.Arrays.equals(big, restored));
+        }
+    }
+
+    byte[] decode(byte[] packed, int count) {
+        byte[] out = new byte[count];
+        decode(ByteBuffer.wrap(packed), out, 0, count);
+        return out;
+    }
+
+    //декодирует count символов из in (с его позиции) в out[from..from+count).
+    //Возвращает число прочитанных бит, позиция in ставится на байт после последнего кода.
+    long decode(ByteBuffer in, byte[] out, int from, int count) {
+        int start = in.position();
+        long window = 0;        //непрочитанные биты, выровненные по старшему разряду
+        int available = 0;      //сколько бит в window настоящие
+        long bits = 0;
+        int shift = 64 - lookupBits;
+        int end = from + count;
+        int i = from;
+        while (i < end) {
+            while (available <= 56 && in.hasRemaining()) {
+                window |= (long) (in.get() & 0xFF) << (56 - available);
+                available += 8;
+            }
+            int used;
+            int entry = table[(int) (window >>> shift)];
+            int symbols = (entry >>> 24) & 3;
+            if (symbols > 0 && end - i >= symbols) {
+                //быстрый путь: один или несколько символов за одно обращение
+                used = entry >>> 26;
+                out[i++] = (byte) entry;
+                if (symbols > 1) out[i++] = (byte) (entry >>> 8);
+                if (symbols > 2) out[i++] = (byte) (entry >>> 16);
+            } else if (symbols > 0) {
+                //в конце потока берем символы по одному, чтобы не выйти за count
+                int first = single[(int) (window >>> shift)];
+                used = first >>> 8;
+                out[i++] = (byte) first;
+            } else {
+                int code = slowSymbol(window);
+                used = code >>> 8;
+                out[i++] = (byte) code;
+            }
+            if (used > available) throw new IllegalArgumentException("truncated huffman stream");
+            window <<= used;
+            available -= used;
+            bits += used;
+        }
+        in.position(start + (int) ((bits + 7) / 8));
+        return bits;
+    }
+
+    //канонический поиск кода длиннее lookupBits: (длина << 8) | символ
+    private int slowSymbol(long window) {
+        for (int length = lookupBits + 1; length <= maxLength; length++) {
+            if (perLength[length] == 0) continue;
+            long code = window >>> (64 - length);
+            long offset = code - firstCode[length];
+            if (offset >= 0 && offset < perLength[length])
+                return (length << 8) | sorted[firstIndex[length] + (int) offset];
+        }
+        throw new IllegalArgumentException("invalid huffman code");
+    }
+}
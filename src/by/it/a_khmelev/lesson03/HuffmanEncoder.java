@@ -0,0 +1,152 @@
+package by.it.a_khmelev.lesson03;
+
+import java.nio.ByteBuffer;
+
+// Lesson 3. Кодирование Хаффмана для произвольных байтов.
+//
+// В отличие от A_Huffman (коды - строки "0101" в общем static TreeMap,
+// результат - строка из символов '0'/'1', т.е. 16 бит памяти на бит кода),
+// здесь каждый объект хранит свою таблицу кодов, поэтому несколько
+// кодировщиков могут работать одновременно в разных потоках.
+//
+// Алфавит - все 256 значений байта.
+// Таблица кодов - два примитивных массива: длина кода lengths[symbol]
+// и сами биты codes[symbol] (младшие lengths[symbol] бит).
+// Коды канонические: их можно восстановить по одним длинам,
+// поэтому для передачи таблицы достаточно 256 байт длин.
+// Результат упаковывается по 8 бит в байт, старший бит первым.
+//
+//        Sample (abacabad):
+//        a: 0
+//        b: 10
+//        c: 110
+//        d: 111
+//        01001100 100111xx -> 2 байта, 14 бит
+
+public class HuffmanEncoder {
+
+    static final int ALPHABET = 256;
+    //код целиком помещается в 64-битный накопитель вместе с неполным байтом
+    static final int MAX_CODE_LENGTH = 56;
+
+    private final byte[] lengths;   //длина кода символа, 0 - символ не встречается
+    private final long[] codes;     //канонический код символа в младших битах
+
+    HuffmanEncoder(int[] frequencies) {
+        this(codeLengths(frequencies));
+    }
+
+    //коды не длиннее maxLength (package-merge), чтобы декодеру хватало маленьких таблиц
+    HuffmanEncoder(int[] frequencies, int maxLength) {
+        this(HuffmanBuilder.codeLengths(frequencies, Math.min(maxLength, MAX_CODE_LENGTH)));
+    }
+
+    HuffmanEncoder(byte[] lengths) {
+        this.lengths = lengths.clone();
+        this.codes = canonicalCodes(this.lengths);
+    }
+
+    public static void main(String[] args) {
+        byte[] data = "abacabad".getBytes();
+        HuffmanEncoder encoder = new HuffmanEncoder(countFrequencies(data, 0, data.length));
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            if (encoder.lengths[symbol] > 0) System.out.printf("%c: %s\n", symbol, encoder.codeString(symbol));
+        }
+        byte[] packed = encoder.encode(data);
+        System.out.printf("%d bits in %d bytes\n", encoder.encodedBits(data, 0, data.length), packed.length);
+
+        //большой вход: 64 МБ текста из 16 букв с неравными частотами
+        int n = 1 << 26;
+        byte[] big = new byte[n];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < n; i++) big[i] = (byte) ('a' + Integer.numberOfTrailingZeros(random.nextInt() | 0x8000));
+        long startTime = System.currentTimeMillis();
+        encoder = new HuffmanEncoder(countFrequencies(big, 0, n));
+        packed = encoder.encode(big);
+        long time = System.currentTimeMillis() - startTime;
+        System.out.printf("encode %d bytes -> %d bytes time=%d (%.0f MB/s)\n", n, packed.length, time, n / 1e3 / Math.max(1, time));
+    }
+
+    byte[] lengths() {
+        return lengths.clone();
+    }
+
+    //код символа строкой, как в A_Huffman (для вывода и проверок)
+    String codeString(int symbol) {
+        StringBuilder sb = new StringBuilder();
+        for (int bit = lengths[symbol] - 1; bit >= 0; bit--) sb.append((codes[symbol] >>> bit) & 1);
+        return sb.toString();
+    }
+
+    static int[] countFrequencies(byte[] data, int from, int to) {
+        int[] frequencies = new int[ALPHABET];
+        for (int i = from; i < to; i++) frequencies[data[i] & 0xFF]++;
+        return frequencies;
+    }
+
+    //размер кода в битах
+    long encodedBits(byte[] data, int from, int to) {
+        long bits = 0;
+        for (int i = from; i < to; i++) bits += lengths[data[i] & 0xFF];
+        return bits;
+    }
+
+    byte[] encode(byte[] data) {
+        ByteBuffer out = ByteBuffer.allocate((int) ((encodedBits(data, 0, data.length) + 7) / 8));
+        encode(data, 0, data.length, out);
+        return out.array();
+    }
+
+    //пишет код data[from..to) в out с его текущей позиции, возвращает число бит.
+    //Последний байт дополняется нулевыми битами.
+    long encode(byte[] data, int from, int to, ByteBuffer out) {
+        long acc = 0;       //накопитель, действительны младшие count бит
+        int count = 0;
+        long bits = 0;
+        for (int i = from; i < to; i++) {
+            int symbol = data[i] & 0xFF;
+            int length = lengths[symbol];
+            if (length == 0) throw new IllegalArgumentException("symbol has no code: " + symbol);
+            //count < 8 после сброса, поэтому в 64 бита помещается код до 56 бит
+            acc = (acc << length) | codes[symbol];
+            count += length;
+            bits += length;
+            while (count >= 8) {
+                count -= 8;
+                out.put((byte) (acc >>> count));
+            }
+        }
+        if (count > 0) out.put((byte) (acc << (8 - count)));
+        return bits;
+    }
+
+    //канонические коды: символы упорядочены по (длина, символ),
+    //следующий код = (предыдущий + 1), сдвинутый влево на прирост длины
+    static long[] canonicalCodes(byte[] lengths) {
+        int maxLength = 0;
+        int[] perLength = new int[64];
+        for (byte length : lengths) {
+            if (length < 0 || length > MAX_CODE_LENGTH)
+                throw new IllegalArgumentException("unsupported code length: " + length);
+            if (length > 0) perLength[length]++;
+            maxLength = Math.max(maxLength, length);
+        }
+        long[] next = new long[maxLength + 2];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + perLength[length - 1]) << 1;
+            next[length] = code;
+        }
+        long[] codes = new long[lengths.length];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) codes[symbol] = next[lengths[symbol]]++;
+        }
+        return codes;
+    }
+
+    //длины кодов Хаффмана по частотам (см. HuffmanBuilder), не длиннее MAX_CODE_LENGTH.
+    //Один встретившийся символ получает код длины 1.
+    static byte[] codeLengths(int[] frequencies) {
+        return HuffmanBuilder.codeLengths(frequencies, MAX_CODE_LENGTH);
+    }
+}
@@ -0,0 +1,209 @@
+package by.it.a_khmelev.lesson03;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Lesson 3. Сжатие файлов кодом Хаффмана по блокам.
+//
+// Вход отображается в память (memory-mapped) и режется на независимые блоки.
+// У каждого блока своя таблица кодов (256 байт длин канонических кодов),
+// поэтому блоки кодируются (HuffmanEncoder) и декодируются (HuffmanDecoder)
+// параллельно на ForkJoinPool, а любой блок можно распаковать отдельно.
+// В памяти одновременно держится не больше двух блоков на поток.
+//
+// Формат файла (все числа big-endian):
+//      int     MAGIC
+//      int     размер блока исходных данных
+//      long    размер исходного файла
+//      int     число блоков k
+//      long[k+1] смещения начала блоков в файле (последнее - конец файла)
+//      блоки:  byte[256] длины кодов, затем упакованные коды
+
+public class HuffmanFileCompressor {
+
+    static final int MAGIC = 0x48554631; //"HUF1"
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    //ограничение длины кода в блоке: редкие символы не уводят декодер в медленный поиск
+    static final int MAX_BLOCK_CODE_LENGTH = 15;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final int blockSize;
+    private final ForkJoinPool pool;
+
+    HuffmanFileCompressor() {
+        this(DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    HuffmanFileCompressor(int blockSize, ForkJoinPool pool) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        this.blockSize = blockSize;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File source = File.createTempFile("huffman", ".txt");
+        File packed = File.createTempFile("huffman", ".huf");
+        File restored = File.createTempFile("huffman", ".out");
+        try {
+            //64 МБ текста из 16 букв с неравными частотами
+            int n = 1 << 26;
+            byte[] data = new byte[n];
+            java.util.Random random = new java.util.Random(1);
+            for (int i = 0; i < n; i++) data[i] = (byte) ('a' + Integer.numberOfTrailingZeros(random.nextInt() | 0x8000));
+            java.nio.file.Files.write(source.toPath(), data);
+
+            HuffmanFileCompressor compressor = new HuffmanFileCompressor();
+            long startTime = System.currentTimeMillis();
+            compressor.compress(source, packed);
+            System.out.printf("compress %d -> %d bytes time=%d\n", source.length(), packed.length(), System.currentTimeMillis() - startTime);
+            startTime = System.currentTimeMillis();
+            compressor.decompress(packed, restored);
+            System.out.printf("decompress -> %d bytes time=%d ok=%b\n", restored.length(), System.currentTimeMillis() - startTime,
+                    java.util.Arrays.equals(data, java.nio.file.Files.readAllBytes(restored.toPath())));
+        } finally {
+            source.delete();
+            packed.delete();
+            restored.delete();
+        }
+    }
+
+    void compress(File source, File target) throws IOException {
+        try (FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long length = input.size();
+            int blocks = (int) ((length + blockSize - 1) / blockSize);
+            long[] offsets = new long[blocks + 1];
+            long position = HEADER_SIZE + 8L * (blocks + 1);
+            int batch = 2 * pool.getParallelism();
+            for (int first = 0; first < blocks; first += batch) {
+                List<Future<byte[]>> tasks = new ArrayList<>();
+                for (int block = first; block < Math.min(blocks, first + batch); block++) {
+                    int index = block;
+                    tasks.add(pool.submit(() -> encodeBlock(input, index, length)));
+                }
+                //блоки пишутся по порядку, поэтому смещения известны сразу
+                for (int i = 0; i < tasks.size(); i++) {
+                    byte[] encoded = join(tasks.get(i));
+                    offsets[first + i] = position;
+                    writeFully(output, ByteBuffer.wrap(encoded), position);
+                    position += encoded.length;
+                }
+            }
+            offsets[blocks] = position;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * (blocks + 1));
+            header.putInt(MAGIC).putInt(blockSize).putLong(length).putInt(blocks);
+            for (long offset : offsets) header.putLong(offset);
+            header.flip();
+            writeFully(output, header, 0);
+        }
+    }
+
+    void decompress(File source, File target) throws IOException {
+        try (FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Header header = readHeader(input);
+            int batch = 2 * pool.getParallelism();
+            for (int first = 0; first < header.blocks(); first += batch) {
+                List<Future<Void>> tasks = new ArrayList<>();
+                for (int block = first; block < Math.min(header.blocks(), first + batch); block++) {
+                    int index = block;
+                    //позиционная запись в FileChannel безопасна из разных потоков
+                    tasks.add(pool.submit(() -> {
+                        byte[] decoded = decodeBlock(input, header, index);
+                        writeFully(output, ByteBuffer.wrap(decoded), (long) index * header.blockSize);
+                        return null;
+                    }));
+                }
+                for (Future<Void> task : tasks) join(task);
+            }
+        }
+    }
+
+    //распаковка одного блока без чтения остальных
+    byte[] decodeBlock(File source, int index) throws IOException {
+        try (FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            Header header = readHeader(input);
+            if (index < 0 || index >= header.blocks())
+                throw new IndexOutOfBoundsException("block " + index + " of " + header.blocks());
+            return decodeBlock(input, header, index);
+        }
+    }
+
+    private byte[] encodeBlock(FileChannel input, int index, long length) throws IOException {
+        long from = (long) index * blockSize;
+        int size = (int) Math.min(blockSize, length - from);
+        byte[] data = new byte[size];
+        input.map(FileChannel.MapMode.READ_ONLY, from, size).get(data);
+        HuffmanEncoder encoder = new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, size), MAX_BLOCK_CODE_LENGTH);
+        long bits = encoder.encodedBits(data, 0, size);
+        ByteBuffer out = ByteBuffer.allocate(HuffmanEncoder.ALPHABET + (int) ((bits + 7) / 8));
+        out.put(encoder.lengths());
+        encoder.encode(data, 0, size, out);
+        return out.array();
+    }
+
+    private static byte[] decodeBlock(FileChannel input, Header header, int index) throws IOException {
+        long from = header.offsets[index];
+        MappedByteBuffer block = input.map(FileChannel.MapMode.READ_ONLY, from, header.offsets[index + 1] - from);
+        byte[] lengths = new byte[HuffmanEncoder.ALPHABET];
+        block.get(lengths);
+        int size = (int) Math.min(header.blockSize, header.length - (long) index * header.blockSize);
+        byte[] decoded = new byte[size];
+        new HuffmanDecoder(lengths).decode(block, decoded, 0, size);
+        return decoded;
+    }
+
+    private static class Header {
+        int blockSize;
+        long length;
+        long[] offsets;
+
+        int blocks() {
+            return offsets.length - 1;
+        }
+    }
+
+    private static Header readHeader(FileChannel input) throws IOException {
+        if (input.size() < HEADER_SIZE) throw new IOException("not a huffman container: too short");
+        MappedByteBuffer buffer = input.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC) throw new IOException("not a huffman container: bad magic");
+        Header header = new Header();
+        header.blockSize = buffer.getInt();
+        header.length = buffer.getLong();
+        int blocks = buffer.getInt();
+        if (header.blockSize < 1 || blocks < 0 || (long) blocks * header.blockSize < header.length)
+            throw new IOException("corrupted huffman container header");
+        header.offsets = new long[blocks + 1];
+        input.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 8L * (blocks + 1)).asLongBuffer().get(header.offsets);
+        return header;
+    }
+
+    private static void writeFully(FileChannel output, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += output.write(buffer, position);
+    }
+
+    private static <T> T join(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+}
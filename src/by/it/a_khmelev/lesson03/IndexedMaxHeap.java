@@ -0,0 +1,192 @@
+package by.it.a_khmelev.lesson03;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Lesson 3. Адресуемая max-куча: insert возвращает дескриптор (handle) элемента.
+//
+// MaxHeap из C_HeapMax умеет только insert и extractMax, поэтому поменять
+// приоритет задачи можно лишь линейным поиском или "ленивым удалением"
+// (старая запись остается в куче мусором до извлечения).
+// Здесь по дескриптору за O(log n) работают:
+//      changeKey(handle, value) - увеличение или уменьшение ключа;
+//      remove(handle)           - удаление из любого места кучи.
+// Все на примитивных массивах:
+//      heap[i]            - дескриптор элемента в позиции i кучи;
+//      position[handle]   - позиция элемента в heap (-1 - дескриптор свободен);
+//      value[handle]      - ключ элемента.
+// Освободившиеся дескрипторы переиспользуются (стек свободных).
+
+public class IndexedMaxHeap {
+
+    private int[] heap;
+    private int[] position;
+    private long[] value;
+    private int[] free;         //стек свободных дескрипторов
+    private int freeCount;
+    private int size;
+    private int handles;        //сколько дескрипторов выдано всего
+
+    IndexedMaxHeap() {
+        this(16);
+    }
+
+    IndexedMaxHeap(int capacity) {
+        capacity = Math.max(1, capacity);
+        heap = new int[capacity];
+        position = new int[capacity];
+        value = new long[capacity];
+        free = new int[capacity];
+    }
+
+    public static void main(String[] args) {
+        //планировщик: 10^6 задач, 10^7 изменений приоритета, затем извлечение всех
+        int jobs = 1_000_000;
+        int changes = 10_000_000;
+        java.util.Random random = new java.util.Random(1);
+        long startTime = System.currentTimeMillis();
+        IndexedMaxHeap heap = new IndexedMaxHeap(jobs);
+        int[] handle = new int[jobs];
+        for (int i = 0; i < jobs; i++) handle[i] = heap.insert(random.nextInt(1_000_000_001));
+        for (int i = 0; i < changes; i++) heap.changeKey(handle[random.nextInt(jobs)], random.nextInt(1_000_000_001));
+        long checksum = 0;
+        while (!heap.isEmpty()) checksum += heap.extractMax();
+        System.out.printf("IndexedMaxHeap %d jobs, %d changeKey time=%d checksum=%d\n", jobs, changes,
+                System.currentTimeMillis() - startTime, checksum);
+
+        //то же с ленивым удалением в PriorityQueue: устаревшие записи пропускаются при извлечении
+        random = new java.util.Random(1);
+        startTime = System.currentTimeMillis();
+        java.util.PriorityQueue<long[]> queue = new java.util.PriorityQueue<>((a, b) -> Long.compare(b[0], a[0]));
+        long[] current = new long[jobs];
+        for (int i = 0; i < jobs; i++) {
+            current[i] = random.nextInt(1_000_000_001);
+            queue.add(new long[]{current[i], i});
+        }
+        for (int i = 0; i < changes; i++) {
+            int job = random.nextInt(jobs);
+            current[job] = random.nextInt(1_000_000_001);
+            queue.add(new long[]{current[job], job});
+        }
+        checksum = 0;
+        boolean[] done = new boolean[jobs];
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int job = (int) top[1];
+            if (done[job] || current[job] != top[0]) continue;
+            done[job] = true;
+            checksum += top[0];
+        }
+        System.out.printf("PriorityQueue lazy deletion time=%d checksum=%d\n", System.currentTimeMillis() - startTime, checksum);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int handle) {
+        return handle >= 0 && handle < handles && position[handle] >= 0;
+    }
+
+    long get(int handle) {
+        check(handle);
+        return value[handle];
+    }
+
+    //дескриптор максимума без извлечения
+    int peekMax() {
+        if (size == 0) throw new NoSuchElementException("heap is empty");
+        return heap[0];
+    }
+
+    int insert(long key) {
+        int handle;
+        if (freeCount > 0) {
+            handle = free[--freeCount];
+        } else {
+            if (handles == heap.length) grow();
+            handle = handles++;
+        }
+        value[handle] = key;
+        heap[size] = handle;
+        position[handle] = size;
+        siftUp(size++);
+        return handle;
+    }
+
+    long extractMax() {
+        if (size == 0) throw new NoSuchElementException("heap is empty");
+        long max = value[heap[0]];
+        remove(heap[0]);
+        return max;
+    }
+
+    void changeKey(int handle, long key) {
+        check(handle);
+        long old = value[handle];
+        value[handle] = key;
+        if (key > old) siftUp(position[handle]);
+        else if (key < old) siftDown(position[handle]);
+    }
+
+    //удаляет элемент, возвращает его ключ. Дескриптор становится свободным
+    long remove(int handle) {
+        check(handle);
+        int i = position[handle];
+        int last = heap[--size];
+        position[handle] = -1;
+        free[freeCount++] = handle;
+        if (i < size) {
+            //на место удаленного - последний элемент, он может пойти и вверх, и вниз
+            heap[i] = last;
+            position[last] = i;
+            if (value[last] > value[handle]) siftUp(i);
+            else siftDown(i);
+        }
+        return value[handle];
+    }
+
+    private void siftUp(int i) {
+        int handle = heap[i];
+        long key = value[handle];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (value[heap[parent]] >= key) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = handle;
+        position[handle] = i;
+    }
+
+    private void siftDown(int i) {
+        int handle = heap[i];
+        long key = value[handle];
+        for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && value[heap[child + 1]] > value[heap[child]]) child++;
+            if (value[heap[child]] <= key) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = handle;
+        position[handle] = i;
+    }
+
+    private void check(int handle) {
+        if (!contains(handle)) throw new NoSuchElementException("no element with handle " + handle);
+    }
+
+    private void grow() {
+        int capacity = 2 * heap.length;
+        heap = Arrays.copyOf(heap, capacity);
+        position = Arrays.copyOf(position, capacity);
+        value = Arrays.copyOf(value, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+}
@@ -48,4 +48,369 @@ public class Lesson3Test {
         assertTrue("C failed", ok);
     }
 
+    @Test
+    public void encoder() throws Exception {
+        byte[] data="abacabad".getBytes();
+        HuffmanEncoder encoder=new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, data.length));
+        boolean ok=encoder.codeString('a').equals("0") && encoder.codeString('b').equals("10")
+                && encoder.codeString('c').equals("110") && encoder.codeString('d').equals("111");
+        assertTrue("encoder codes failed", ok);
+        byte[] packed=encoder.encode(data);
+        assertTrue("encoder packing failed", packed.length==2 && packed[0]==(byte) 0x4C && packed[1]==(byte) 0x9C);
+
+        byte[] single="aaa".getBytes();
+        encoder=new HuffmanEncoder(HuffmanEncoder.countFrequencies(single, 0, single.length));
+        assertTrue("encoder single failed", encoder.codeString('a').equals("0") && encoder.encode(single).length==1);
+
+        //суммарная длина совпадает с оптимальной (сумма весов всех слияний)
+        java.util.Random random=new java.util.Random(5);
+        for (int test = 0; test < 50; test++) {
+            int[] frequencies=new int[HuffmanEncoder.ALPHABET];
+            java.util.PriorityQueue<Long> queue=new java.util.PriorityQueue<>();
+            for (int i = 0; i < frequencies.length; i++) {
+                if (random.nextInt(3)==0) {
+                    frequencies[i]=1+random.nextInt(1000);
+                    queue.add((long) frequencies[i]);
+                }
+            }
+            long optimal=0;
+            while (queue.size()>1) {
+                long merged=queue.poll()+queue.poll();
+                optimal+=merged;
+                queue.add(merged);
+            }
+            byte[] lengths=HuffmanEncoder.codeLengths(frequencies);
+            long cost=0;
+            for (int i = 0; i < frequencies.length; i++) cost+=(long) frequencies[i]*lengths[i];
+            assertTrue("encoder lengths failed", cost==optimal);
+        }
+    }
+
+    @Test
+    public void adaptive() throws Exception {
+        java.util.Random random=new java.util.Random(13);
+        for (int test = 0; test < 30; test++) {
+            int n=random.nextInt(1 << random.nextInt(17));
+            int alphabet=1+random.nextInt(256);
+            byte[] data=new byte[n];
+            AdaptiveHuffman tree=new AdaptiveHuffman();
+            for (int i = 0; i < n; i++) {
+                data[i]=(byte) (Integer.numberOfTrailingZeros(random.nextInt() | 1 << 30)*7 % alphabet);
+                if (test < 10) {
+                    tree.update(data[i] & 0xFF);
+                    assertTrue("adaptive tree failed", tree.isValid());
+                }
+            }
+            java.io.ByteArrayOutputStream packed=new java.io.ByteArrayOutputStream();
+            try (AdaptiveHuffman.Encoder encoder=new AdaptiveHuffman.Encoder(packed)) {
+                //кусками разной длины, как приходят строки журнала
+                for (int i = 0; i < n; ) {
+                    int len=Math.min(n-i, random.nextInt(100));
+                    encoder.write(data, i, len);
+                    i+=len;
+                }
+            }
+            //один проход стоит не больше двухпроходного кода плюс ~10 бит на первое появление символа
+            HuffmanEncoder twoPass=new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, n));
+            assertTrue("adaptive size failed", packed.size()*8L<=twoPass.encodedBits(data, 0, n)*1.05+256*40+64);
+            AdaptiveHuffman.Decoder decoder=new AdaptiveHuffman.Decoder(new java.io.ByteArrayInputStream(packed.toByteArray()));
+            assertTrue("adaptive decode failed", java.util.Arrays.equals(data, decoder.readAllBytes()) && decoder.read()==-1);
+        }
+    }
+
+    @Test
+    public void longHeap() throws Exception {
+        java.util.Random random=new java.util.Random(17);
+        for (int arity = 2; arity <= 8; arity*=2) {
+            java.util.PriorityQueue<Long> queue=new java.util.PriorityQueue<>(java.util.Collections.reverseOrder());
+            long[] start=new long[random.nextInt(1000)];
+            for (int i = 0; i < start.length; i++) {
+                start[i]=random.nextInt(1000);
+                queue.add(start[i]);
+            }
+            LongHeap heap=new LongHeap(arity, start);
+            long[] out=new long[50];
+            for (int step = 0; step < 20000; step++) {
+                int kind=random.nextInt(10);
+                if (kind<5) {
+                    long value=random.nextLong();
+                    heap.insert(value);
+                    queue.add(value);
+                } else if (kind<6) {
+                    long[] batch=new long[random.nextInt(Math.min(2*heap.size()+2, 3000))];
+                    for (int i = 0; i < batch.length; i++) {
+                        batch[i]=random.nextInt(1000);
+                        queue.add(batch[i]);
+                    }
+                    heap.insertAll(batch, 0, batch.length);
+                } else if (kind<7) {
+                    int k=heap.extractMax(out, random.nextInt(out.length));
+                    for (int i = 0; i < k; i++) assertTrue("longHeap batch failed", out[i]==queue.poll());
+                } else if (!queue.isEmpty()) {
+                    assertTrue("longHeap extract failed", heap.peekMax()==queue.peek() && heap.extractMax()==queue.poll());
+                }
+                assertTrue("longHeap size failed", heap.size()==queue.size());
+            }
+        }
+    }
+
+    @Test
+    public void indexedHeap() throws Exception {
+        java.util.Random random=new java.util.Random(19);
+        IndexedMaxHeap heap=new IndexedMaxHeap(1);
+        java.util.Map<Integer, Long> alive=new java.util.HashMap<>();
+        java.util.List<Integer> handles=new java.util.ArrayList<>();
+        for (int step = 0; step < 30000; step++) {
+            int kind=random.nextInt(10);
+            if (kind<4 || alive.isEmpty()) {
+                long key=random.nextInt(1000);
+                int handle=heap.insert(key);
+                assertTrue("indexedHeap handle failed", !alive.containsKey(handle));
+                alive.put(handle, key);
+                handles.add(handle);
+            } else {
+                int handle=handles.get(random.nextInt(handles.size()));
+                if (!alive.containsKey(handle)) {
+                    assertTrue("indexedHeap contains failed", !heap.contains(handle));
+                    continue;
+                }
+                if (kind<7) {
+                    long key=random.nextInt(1000);
+                    heap.changeKey(handle, key);
+                    alive.put(handle, key);
+                } else if (kind<9) {
+                    assertTrue("indexedHeap remove failed", heap.remove(handle)==alive.remove(handle));
+                } else {
+                    long max=java.util.Collections.max(alive.values());
+                    int top=heap.peekMax();
+                    assertTrue("indexedHeap max failed", heap.get(top)==max && heap.extractMax()==max);
+                    alive.remove(top);
+                }
+            }
+            assertTrue("indexedHeap size failed", heap.size()==alive.size());
+        }
+    }
+
+    @Test
+    public void multiQueue() throws Exception {
+        //strict в одном потоке - обычная очередь с приоритетами
+        java.util.Random random=new java.util.Random(23);
+        MultiQueue strict=new MultiQueue(4, true);
+        java.util.PriorityQueue<Long> queue=new java.util.PriorityQueue<>(java.util.Collections.reverseOrder());
+        for (int step = 0; step < 20000; step++) {
+            if (random.nextInt(3)>0) {
+                long value=random.nextInt(1000);
+                strict.insert(value);
+                queue.add(value);
+            } else {
+                long expected=queue.isEmpty() ? MultiQueue.EMPTY : queue.poll();
+                assertTrue("multiQueue strict failed", strict.extractMax()==expected);
+            }
+        }
+
+        //из нескольких потоков (relaxed и strict): ничего не теряется и не дублируется
+        for (boolean mode : new boolean[]{false, true}) {
+            MultiQueue shared=new MultiQueue(4, mode);
+            int threads=4, perThread=20000;
+            long[][] extracted=new long[threads][];
+            Thread[] workers=new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int id=t;
+                workers[t]=new Thread(() -> {
+                    long[] mine=new long[perThread];
+                    int count=0;
+                    for (int i = 0; i < perThread; i++) {
+                        shared.insert((long) id*perThread+i);
+                        if (i%2==1) mine[count++]=shared.extractMax();
+                    }
+                    extracted[id]=java.util.Arrays.copyOf(mine, count);
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) worker.join();
+            boolean[] seen=new boolean[threads*perThread];
+            int total=0;
+            for (long[] part : extracted) {
+                for (long value : part) {
+                    assertTrue("multiQueue " + mode + " failed", value!=MultiQueue.EMPTY && !seen[(int) value]);
+                    seen[(int) value]=true;
+                    total++;
+                }
+            }
+            for (long value; (value=shared.extractMax())!=MultiQueue.EMPTY; total++) {
+                assertTrue("multiQueue " + mode + " failed", !seen[(int) value]);
+                seen[(int) value]=true;
+            }
+            assertTrue("multiQueue " + mode + " lost values", total==threads*perThread);
+        }
+    }
+
+    @Test
+    public void externalQueue() throws Exception {
+        java.util.Random random=new java.util.Random(29);
+        //маленькая куча: много сбросов на диск и слияний серий
+        try (ExternalMaxQueue external=new ExternalMaxQueue(50)) {
+            java.util.PriorityQueue<Long> queue=new java.util.PriorityQueue<>(java.util.Collections.reverseOrder());
+            for (int step = 0; step < 200000; step++) {
+                if (random.nextInt(5)<3 || queue.isEmpty()) {
+                    long value=random.nextInt(100000)-50000;
+                    external.insert(value);
+                    queue.add(value);
+                } else {
+                    assertTrue("externalQueue failed", external.peekMax()==queue.peek() && external.extractMax()==queue.poll());
+                }
+                assertTrue("externalQueue size failed", external.size()==queue.size());
+            }
+            while (!queue.isEmpty()) assertTrue("externalQueue drain failed", external.extractMax()==queue.poll());
+            assertTrue("externalQueue empty failed", external.isEmpty());
+        }
+
+        //только вставки: 4000 сбросов по 50 значений. Слияния по уровням переписывают
+        //каждое значение не больше (1 + число уровней) раз, а не при каждом слиянии
+        int n=200000;
+        try (ExternalMaxQueue external=new ExternalMaxQueue(50)) {
+            long[] values=new long[n];
+            for (int i = 0; i < n; i++) external.insert(values[i]=random.nextLong());
+            int levels=0;
+            for (long spills=n/50; spills>1; spills=(spills+ExternalMaxQueue.LEVEL_FAN_IN-1)/ExternalMaxQueue.LEVEL_FAN_IN) levels++;
+            assertTrue("externalQueue write amplification " + external.writtenValues(),
+                    external.writtenValues()<=(long) n*(1+levels));
+            assertTrue("externalQueue too many runs " + external.runs(),
+                    external.runs()<=levels*(ExternalMaxQueue.LEVEL_FAN_IN-1));
+            java.util.Arrays.sort(values);
+            for (int i = n-1; i >= 0; i--) assertTrue("externalQueue levels drain failed", external.extractMax()==values[i]);
+        }
+    }
+
+    @Test
+    public void builder() throws Exception {
+        //без ограничения - та же стоимость, что у кучи из A_Huffman (сумма весов слияний)
+        java.util.Random random=new java.util.Random(7);
+        for (int test = 0; test < 50; test++) {
+            int[] frequencies=new int[HuffmanEncoder.ALPHABET];
+            java.util.PriorityQueue<Long> queue=new java.util.PriorityQueue<>();
+            for (int i = 0; i < frequencies.length; i++) {
+                if (random.nextInt(2)==0) {
+                    frequencies[i]=1+random.nextInt(1 << random.nextInt(24));
+                    queue.add((long) frequencies[i]);
+                }
+            }
+            long optimal=0;
+            while (queue.size()>1) {
+                long merged=queue.poll()+queue.poll();
+                optimal+=merged;
+                queue.add(merged);
+            }
+            byte[] lengths=HuffmanBuilder.codeLengths(frequencies);
+            long cost=0;
+            for (int i = 0; i < frequencies.length; i++) cost+=(long) frequencies[i]*lengths[i];
+            assertTrue("builder lengths failed", queue.size()<2 && cost==optimal);
+        }
+
+        //с ограничением - полный префиксный код минимальной стоимости (перебор всех длин)
+        for (int test = 0; test < 200; test++) {
+            int n=2+random.nextInt(5);
+            int maxLength=1;
+            while ((1 << maxLength)<n) maxLength++;
+            maxLength+=random.nextInt(3);
+            int[] frequencies=new int[n];
+            for (int i = 0; i < n; i++) frequencies[i]=1+random.nextInt(1 << random.nextInt(12));
+            byte[] lengths=HuffmanBuilder.codeLengths(frequencies, maxLength);
+            long cost=0;
+            long kraft=0;
+            for (int i = 0; i < n; i++) {
+                assertTrue("builder cap failed", lengths[i]>=1 && lengths[i]<=maxLength);
+                cost+=(long) frequencies[i]*lengths[i];
+                kraft+=1L << (maxLength-lengths[i]);
+            }
+            assertTrue("builder kraft failed", kraft==1L << maxLength);
+            long best=Long.MAX_VALUE;
+            int[] probe=new int[n];
+            for (int code = 0; code < Math.pow(maxLength, n); code++) {
+                long probeCost=0, probeKraft=0;
+                for (int i = 0, c = code; i < n; i++, c/=maxLength) {
+                    probe[i]=1+c%maxLength;
+                    probeCost+=(long) frequencies[i]*probe[i];
+                    probeKraft+=1L << (maxLength-probe[i]);
+                }
+                if (probeKraft<=1L << maxLength) best=Math.min(best, probeCost);
+            }
+            assertTrue("builder package-merge failed", cost==best);
+        }
+
+        //частоты Фибоначчи: без ограничения код длины 29, с ограничением - не длиннее 12
+        int[] fibonacci=new int[30];
+        fibonacci[0]=fibonacci[1]=1;
+        for (int i = 2; i < fibonacci.length; i++) fibonacci[i]=fibonacci[i-1]+fibonacci[i-2];
+        int longest=0;
+        for (byte length : HuffmanBuilder.codeLengths(fibonacci)) longest=Math.max(longest, length);
+        assertTrue("builder fibonacci failed", longest==29);
+        longest=0;
+        for (byte length : HuffmanBuilder.codeLengths(fibonacci, 12)) longest=Math.max(longest, length);
+        assertTrue("builder fibonacci cap failed", longest==12);
+    }
+
+    @Test
+    public void decoder() throws Exception {
+        java.util.Random random=new java.util.Random(11);
+        for (int test = 0; test < 40; test++) {
+            int n=1+random.nextInt(20000);
+            byte[] data=new byte[n];
+            int skew=1+test%20;     //чем больше, тем длиннее редкие коды
+            for (int i = 0; i < n; i++) {
+                int symbol=0;
+                while (symbol<255 && random.nextInt(skew+1)!=0) symbol++;
+                data[i]=(byte) (test%3==0 ? random.nextInt(256) : symbol);
+            }
+            HuffmanEncoder encoder=new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, n));
+            byte[] packed=encoder.encode(data);
+            for (int lookupBits = 8; lookupBits <= 12; lookupBits++) {
+                HuffmanDecoder decoder=new HuffmanDecoder(encoder.lengths(), lookupBits);
+                java.nio.ByteBuffer in=java.nio.ByteBuffer.wrap(packed);
+                byte[] restored=new byte[n];
+                long bits=decoder.decode(in, restored, 0, n);
+                assertTrue("decoder failed", java.util.Arrays.equals(data, restored));
+                assertTrue("decoder bits failed", bits==encoder.encodedBits(data, 0, n) && in.position()==packed.length);
+            }
+        }
+        byte[] data="abacabad".getBytes();
+        HuffmanEncoder encoder=new HuffmanEncoder(HuffmanEncoder.countFrequencies(data, 0, data.length));
+        HuffmanDecoder decoder=new HuffmanDecoder(encoder.lengths());
+        assertTrue("decoder sample failed", new String(decoder.decode(new byte[]{0x4C, (byte) 0x9C}, 8)).equals("abacabad"));
+        boolean truncated=false;
+        try {
+            decoder.decode(new byte[]{0x4C}, 8);
+        } catch (IllegalArgumentException e) {
+            truncated=true;
+        }
+        assertTrue("decoder truncation failed", truncated);
+    }
+
+    @Test
+    public void fileCompressor() throws Exception {
+        File source=File.createTempFile("huffman", ".txt");
+        File packed=File.createTempFile("huffman", ".huf");
+        File restored=File.createTempFile("huffman", ".out");
+        try {
+            HuffmanFileCompressor compressor=new HuffmanFileCompressor(1000, java.util.concurrent.ForkJoinPool.commonPool());
+            java.util.Random random=new java.util.Random(2);
+            for (int n : new int[]{0, 1, 999, 1000, 12345}) {
+                byte[] data=new byte[n];
+                for (int i = 0; i < n; i++) data[i]=(byte) (i<5000 ? 'a'+random.nextInt(3) : random.nextInt(256));
+                java.nio.file.Files.write(source.toPath(), data);
+                compressor.compress(source, packed);
+                compressor.decompress(packed, restored);
+                byte[] result=java.nio.file.Files.readAllBytes(restored.toPath());
+                assertTrue("compressor failed " + n, java.util.Arrays.equals(data, result));
+                if (n==12345) {
+                    byte[] block=compressor.decodeBlock(packed, 12);
+                    assertTrue("compressor block failed", java.util.Arrays.equals(block, java.util.Arrays.copyOfRange(data, 12000, 12345)));
+                }
+            }
+        } finally {
+            source.delete();
+            packed.delete();
+            restored.delete();
+        }
+    }
 }
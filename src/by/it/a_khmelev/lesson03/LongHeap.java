@@ -0,0 +1,188 @@
+package by.it.a_khmelev.lesson03;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Lesson 3. Max-куча на примитивном массиве long[] с арностью 2, 4 или 8.
+//
+// MaxHeap из C_HeapMax хранит List<Long>: каждая вставка создает объект Long,
+// а каждое сравнение при просеивании идет по ссылке в другую часть памяти.
+// Здесь значения лежат подряд в long[], а у узла i дети d*i+1..d*i+d
+// (d - степень двойки, поэтому умножение и деление - сдвиги).
+// Чем больше d, тем ниже куча: меньше уровней и промахов кэша при просеивании,
+// но больше сравнений на уровне (все дети одного узла обычно в одной кэш-линии).
+//
+//      heapify     - построение из массива за O(n) (просеивание вниз снизу вверх);
+//      insert      - просеивание вверх;
+//      extractMax  - "дырка" опускается до листа по большему ребенку,
+//                    затем последний элемент поднимается от листа (меньше сравнений);
+//      insertAll/extractMax(out) - пакетные версии: большой пакет вставляется
+//                    дописыванием в конец и повторным heapify.
+
+public class LongHeap {
+
+    private final int shift;    //log2(arity)
+    private long[] heap;
+    private int size;
+
+    LongHeap(int arity) {
+        this(arity, 16);
+    }
+
+    LongHeap(int arity, int capacity) {
+        if (arity != 2 && arity != 4 && arity != 8)
+            throw new IllegalArgumentException("arity must be 2, 4 or 8: " + arity);
+        this.shift = Integer.numberOfTrailingZeros(arity);
+        this.heap = new long[Math.max(1, capacity)];
+    }
+
+    //куча из копии values за O(n)
+    LongHeap(int arity, long[] values) {
+        this(arity, values.length);
+        System.arraycopy(values, 0, heap, 0, values.length);
+        size = values.length;
+        heapify();
+    }
+
+    public static void main(String[] args) {
+        //смешанная нагрузка: 3 вставки на 2 извлечения, потом все извлечь
+        int operations = 10_000_000;
+        long[] values = new long[operations];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < operations; i++) values[i] = random.nextInt(1_000_000_001);
+
+        long startTime = System.currentTimeMillis();
+        java.util.PriorityQueue<Long> queue = new java.util.PriorityQueue<>(java.util.Collections.reverseOrder());
+        long checksum = 0;
+        for (int i = 0; i < operations; i++) {
+            if (i % 5 == 1 || i % 5 == 3) checksum += queue.poll();
+            else queue.add(values[i]);
+        }
+        while (!queue.isEmpty()) checksum += queue.poll();
+        System.out.printf("PriorityQueue<Long> %d operations time=%d checksum=%d\n", operations, System.currentTimeMillis() - startTime, checksum);
+
+        for (int arity = 2; arity <= 8; arity *= 2) {
+            startTime = System.currentTimeMillis();
+            LongHeap heap = new LongHeap(arity);
+            checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                if (i % 5 == 1 || i % 5 == 3) checksum += heap.extractMax();
+                else heap.insert(values[i]);
+            }
+            while (!heap.isEmpty()) checksum += heap.extractMax();
+            long mixed = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            heap = new LongHeap(arity, values);
+            long built = System.currentTimeMillis() - startTime;
+            long[] out = new long[1024];
+            long sum = 0;
+            for (int k; (k = heap.extractMax(out, out.length)) > 0; ) sum += out[k - 1];
+            System.out.printf("LongHeap arity=%d mixed time=%d checksum=%d; heapify %d values time=%d, drain time=%d (%d)\n",
+                    arity, mixed, checksum, operations, built, System.currentTimeMillis() - startTime - built, sum);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long peekMax() {
+        if (size == 0) throw new NoSuchElementException("heap is empty");
+        return heap[0];
+    }
+
+    void insert(long value) {
+        ensureCapacity(size + 1);
+        siftUp(size++, value);
+    }
+
+    //вставка values[from..to). Если пакет не меньше кучи, дешевле дописать и перестроить все за O(n)
+    void insertAll(long[] values, int from, int to) {
+        int count = to - from;
+        ensureCapacity(size + count);
+        if (count >= size) {
+            System.arraycopy(values, from, heap, size, count);
+            size += count;
+            heapify();
+        } else {
+            for (int i = from; i < to; i++) siftUp(size++, values[i]);
+        }
+    }
+
+    long extractMax() {
+        if (size == 0) throw new NoSuchElementException("heap is empty");
+        long max = heap[0];
+        long last = heap[--size];
+        if (size > 0) {
+            int hole = holeToLeaf(0);
+            siftUp(hole, last);
+        }
+        return max;
+    }
+
+    //извлекает до count максимумов в out[0..) по убыванию, возвращает сколько извлечено
+    int extractMax(long[] out, int count) {
+        int k = Math.min(count, size);
+        for (int i = 0; i < k; i++) out[i] = extractMax();
+        return k;
+    }
+
+    //просеивание вниз всех внутренних узлов снизу вверх: O(n)
+    private void heapify() {
+        if (size < 2) return;
+        for (int i = (size - 2) >>> shift; i >= 0; i--) siftDown(i, heap[i]);
+    }
+
+    private void siftUp(int i, long value) {
+        while (i > 0) {
+            int parent = (i - 1) >>> shift;
+            if (heap[parent] >= value) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private void siftDown(int i, long value) {
+        int arity = 1 << shift;
+        for (int first = (i << shift) + 1; first < size; first = (i << shift) + 1) {
+            int best = maxChild(first, Math.min(first + arity, size));
+            if (heap[best] <= value) break;
+            heap[i] = heap[best];
+            i = best;
+        }
+        heap[i] = value;
+    }
+
+    //опускает дырку из i до листа, каждый раз поднимая на ее место большего ребенка
+    private int holeToLeaf(int i) {
+        int arity = 1 << shift;
+        for (int first = (i << shift) + 1; first < size; first = (i << shift) + 1) {
+            int best = maxChild(first, Math.min(first + arity, size));
+            heap[i] = heap[best];
+            i = best;
+        }
+        return i;
+    }
+
+    private int maxChild(int from, int to) {
+        int best = from;
+        long max = heap[from];
+        for (int child = from + 1; child < to; child++) {
+            if (heap[child] > max) {
+                max = heap[child];
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > heap.length) heap = Arrays.copyOf(heap, Math.max(capacity, 2 * heap.length));
+    }
+}
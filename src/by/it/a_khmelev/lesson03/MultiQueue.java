@@ -0,0 +1,216 @@
+package by.it.a_khmelev.lesson03;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Lesson 3. Конкурентная очередь с приоритетами из нескольких куч (MultiQueue).
+//
+// Одна MaxHeap под общей блокировкой выполняет Insert/ExtractMax
+// строго по одному, сколько бы потоков их ни присылало.
+// Здесь куч c * (число потоков), у каждой своя блокировка:
+//      insert      - в случайную кучу (занятая блокировка - берем другую);
+//      extractMax  - relaxed: из двух случайных куч берется та, у которой
+//                    вершина больше. Результат - "почти максимум": на практике
+//                    среди первых O(числа куч) по величине элементов;
+//                  - strict: по опубликованным вершинам без блокировок находится
+//                    куча с наибольшей вершиной, блокируется только она, и под
+//                    блокировкой проверяется, что ее вершина все еще не меньше
+//                    остальных. Если нет (кто-то успел вставить или извлечь) - повтор.
+// Вершины куч публикуются в AtomicLongArray, поэтому выбор кучи
+// делается без блокировок, и любая операция держит одну блокировку.
+
+public class MultiQueue {
+
+    //"пусто" - значение, которое нельзя вставить
+    static final long EMPTY = Long.MIN_VALUE;
+    //вершины разнесены по разным кэш-линиям (8 long = 64 байта)
+    private static final int STRIDE = 8;
+
+    private final LongHeap[] heaps;
+    private final ReentrantLock[] locks;
+    private final AtomicLongArray tops;
+    private final boolean strict;
+
+    MultiQueue(int threads, boolean strict) {
+        this(threads, 2, strict);
+    }
+
+    MultiQueue(int threads, int heapsPerThread, boolean strict) {
+        int count = Math.max(2, threads * heapsPerThread);
+        heaps = new LongHeap[count];
+        locks = new ReentrantLock[count];
+        tops = new AtomicLongArray(count * STRIDE);
+        for (int i = 0; i < count; i++) {
+            heaps[i] = new LongHeap(4);
+            locks[i] = new ReentrantLock();
+            tops.set(i * STRIDE, EMPTY);
+        }
+        this.strict = strict;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int operations = 4_000_000;
+        System.out.printf("available processors: %d\n", Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            LongHeap single = new LongHeap(4);
+            long time = run(threads, operations,
+                    value -> {
+                        synchronized (single) {
+                            single.insert(value);
+                        }
+                    },
+                    () -> {
+                        synchronized (single) {
+                            return single.isEmpty() ? EMPTY : single.extractMax();
+                        }
+                    });
+            System.out.printf("threads=%d  one locked heap: %6d ops/ms", threads, operations / Math.max(1, time));
+            for (boolean strict : new boolean[]{false, true}) {
+                MultiQueue queue = new MultiQueue(threads, strict);
+                time = run(threads, operations, queue::insert, queue::extractMax);
+                System.out.printf("  multiqueue %s: %6d ops/ms", strict ? "strict" : "relaxed", operations / Math.max(1, time));
+            }
+            System.out.println();
+        }
+    }
+
+    //каждый поток делает поровну вставок и извлечений, возвращает время в мс
+    private static long run(int threads, int operations, java.util.function.LongConsumer insert,
+                            java.util.function.LongSupplier extract) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long startTime = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations / threads; i++) {
+                    if ((i & 1) == 0) insert.accept(random.nextInt(1_000_000_001));
+                    else extract.getAsLong();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        return System.currentTimeMillis() - startTime;
+    }
+
+    void insert(long value) {
+        if (value == EMPTY) throw new IllegalArgumentException("value is reserved: " + value);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            int i = random.nextInt(heaps.length);
+            if (!locks[i].tryLock()) continue;
+            try {
+                heaps[i].insert(value);
+                publish(i);
+                return;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    //максимум (strict) или почти максимум (relaxed); EMPTY, если очередь пуста
+    long extractMax() {
+        return strict ? extractStrict() : extractRelaxed();
+    }
+
+    private long extractRelaxed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 2 * heaps.length; attempt++) {
+            int a = random.nextInt(heaps.length);
+            int b = random.nextInt(heaps.length);
+            int i = tops.get(a * STRIDE) >= tops.get(b * STRIDE) ? a : b;
+            if (tops.get(i * STRIDE) == EMPTY) continue;
+            if (!locks[i].tryLock()) continue;
+            try {
+                //пока мы выбирали, кучу могли опустошить
+                if (heaps[i].isEmpty()) continue;
+                long value = heaps[i].extractMax();
+                publish(i);
+                return value;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        //случайные попытки не нашли непустую кучу - проверяем все по порядку
+        for (int i = 0; i < heaps.length; i++) {
+            locks[i].lock();
+            try {
+                if (heaps[i].isEmpty()) continue;
+                long value = heaps[i].extractMax();
+                publish(i);
+                return value;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return EMPTY;
+    }
+
+    private long extractStrict() {
+        while (true) {
+            int best = maxTop();
+            if (best < 0) {
+                //все вершины пусты - проверяем кучи по одной, вдруг вставка еще не опубликована
+                if (allEmpty()) return EMPTY;
+                continue;
+            }
+            locks[best].lock();
+            try {
+                if (heaps[best].isEmpty()) continue;
+                long value = heaps[best].peekMax();
+                //под блокировкой вершина best не меняется, а остальные не должны быть больше
+                if (!isMaxTop(value)) continue;
+                heaps[best].extractMax();
+                publish(best);
+                return value;
+            } finally {
+                locks[best].unlock();
+            }
+        }
+    }
+
+    //номер кучи с наибольшей опубликованной вершиной, -1 если все пусты
+    private int maxTop() {
+        int best = -1;
+        long max = EMPTY;
+        for (int i = 0; i < heaps.length; i++) {
+            long top = tops.get(i * STRIDE);
+            if (top > max) {
+                max = top;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private boolean isMaxTop(long value) {
+        for (int i = 0; i < heaps.length; i++) if (tops.get(i * STRIDE) > value) return false;
+        return true;
+    }
+
+    private boolean allEmpty() {
+        for (int i = 0; i < heaps.length; i++) {
+            locks[i].lock();
+            try {
+                if (!heaps[i].isEmpty()) return false;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return true;
+    }
+
+    //вызывается под блокировкой кучи i
+    private void publish(int i) {
+        tops.set(i * STRIDE, heaps[i].isEmpty() ? EMPTY : heaps[i].peekMax());
+    }
+
+    //приблизительный размер: кучи читаются без блокировок
+    int size() {
+        int size = 0;
+        for (LongHeap heap : heaps) size += heap.size();
+        return size;
+    }
+}
@@ -1,9 +1,13 @@
 package by.it.a_khmelev.lesson04;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /*
 В первой строке источника данных даны:
@@ -29,7 +33,7 @@ import java.util.Scanner;
 public class A_BinaryFind {
     int[] findIndex(InputStream stream) throws FileNotFoundException {
         //подготовка к чтению данных
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
 
         //размер отсортированного массива
@@ -56,6 +60,72 @@ public class A_BinaryFind {
         return result;
     }
 
+    //тот же ввод и вывод, но все запросы решаются пакетом (findIndices)
+    int[] findIndexBatch(InputStream stream) {
+        FastInput scanner = new FastInput(stream);
+        int n = scanner.nextInt();
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = scanner.nextInt();
+        int k = scanner.nextInt();
+        int[] queries = new int[k];
+        for (int i = 0; i < k; i++) queries[i] = scanner.nextInt();
+        return findIndices(a, queries);
+    }
+
+    // Пакетный поиск. Отдельный бинарный поиск на каждый запрос - k*log(n) случайных
+    // обращений к памяти. Здесь запросы сортируются (вместе с исходными номерами),
+    // и отсортированный массив проходится один раз слева направо: от позиции
+    // предыдущего ответа делается "галоп" (шаги 1, 2, 4, ...) до значения запроса,
+    // затем бинарный поиск внутри последнего шага. Ответы раскладываются обратно
+    // по исходным номерам запросов. Стоимость O(k*log(k) + k*log(n/k)),
+    // и обращения к a идут почти последовательно.
+    // Большой пакет делится на диапазоны значений (равные части отсортированных
+    // запросов), и каждый диапазон обрабатывается параллельно.
+    static final int PARALLEL_BATCH_THRESHOLD = 1 << 16;
+
+    //1-based индексы в отсортированном a или -1 для каждого запроса
+    static int[] findIndices(int[] a, int[] queries) {
+        int k = queries.length;
+        //старшие 32 бита - значение (знаковое сравнение сохраняется), младшие - номер запроса
+        long[] order = new long[k];
+        for (int i = 0; i < k; i++) order[i] = ((long) queries[i] << 32) | i;
+        int[] result = new int[k];
+        if (k < PARALLEL_BATCH_THRESHOLD) {
+            Arrays.sort(order);
+            resolve(a, order, 0, k, result);
+            return result;
+        }
+        Arrays.parallelSort(order);
+        int parts = 4 * ForkJoinPool.commonPool().getParallelism();
+        IntStream.range(0, parts).parallel()
+                .forEach(part -> resolve(a, order, (int) ((long) k * part / parts), (int) ((long) k * (part + 1) / parts), result));
+        return result;
+    }
+
+    //ответы на отсортированные запросы order[from..to) галопом по a
+    private static void resolve(int[] a, long[] order, int from, int to, int[] result) {
+        int pos = 0;    //все элементы левее pos меньше текущего запроса
+        for (int i = from; i < to; i++) {
+            int value = (int) (order[i] >> 32);
+            //галоп: ищем шаг, после которого a[pos + step - 1] >= value
+            int step = 1;
+            int lo = pos;
+            while (pos + step - 1 < a.length && a[pos + step - 1] < value) {
+                lo = pos + step;
+                step <<= 1;
+            }
+            int hi = Math.min(pos + step - 1, a.length);
+            //первый элемент >= value в a[lo..hi]
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (a[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            pos = lo;
+            result[(int) order[i]] = pos < a.length && a[pos] == value ? pos + 1 : -1;
+        }
+    }
+
 
     public static void main(String[] args) throws FileNotFoundException {
         String root = System.getProperty("user.dir") + "/src/";
@@ -67,6 +137,26 @@ public class A_BinaryFind {
         for (int index:result){
             System.out.print(index+" ");
         }
+        System.out.println();
+
+        //10^7 запросов к массиву из 10^7 чисел: по одному и пакетом
+        int n = 10_000_000;
+        int[] a = new int[n];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0, value = 0; i < n; i++) a[i] = value += 1 + random.nextInt(100);
+        int[] queries = new int[n];
+        for (int i = 0; i < n; i++) queries[i] = random.nextInt(a[n - 1] + 1);
+        long startTime = System.currentTimeMillis();
+        long checksum = 0;
+        for (int value : queries) {
+            int index = Arrays.binarySearch(a, value);
+            checksum += index >= 0 ? index + 1 : -1;
+        }
+        System.out.printf("binarySearch per query time=%d checksum=%d\n", System.currentTimeMillis() - startTime, checksum);
+        startTime = System.currentTimeMillis();
+        checksum = 0;
+        for (int index : findIndices(a, queries)) checksum += index;
+        System.out.printf("findIndices batch time=%d checksum=%d\n", System.currentTimeMillis() - startTime, checksum);
     }
 
 }
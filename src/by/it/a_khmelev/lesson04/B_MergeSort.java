@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson04;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Реализуйте сортировку слиянием для одномерного массива.
@@ -23,7 +24,7 @@ public class B_MergeSort {
 
     int[] getMergeSort(InputStream stream) throws FileNotFoundException {
         //подготовка к чтению данных
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
 
         //размер массива
@@ -46,6 +47,17 @@ public class B_MergeSort {
         //!!!!!!!!!!!!!!!!!!!!!!!!!     КОНЕЦ ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
         return a;
     }
+
+    //тот же ввод, сортировка - ParallelMergeSort (fork-join, два буфера, параллельное слияние)
+    int[] getParallelMergeSort(InputStream stream) {
+        FastInput scanner = new FastInput(stream);
+        int n = scanner.nextInt();
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = scanner.nextInt();
+        ParallelMergeSort.sort(a);
+        return a;
+    }
+
     public static void main(String[] args) throws FileNotFoundException {
         String root = System.getProperty("user.dir") + "/src/";
         InputStream stream = new FileInputStream(root + "by/it/a_khmelev/lesson04/dataB.txt");
@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson04;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Рассчитать число инверсий одномерного массива.
@@ -37,7 +38,7 @@ public class C_GetInversions {
 
     int calc(InputStream stream) throws FileNotFoundException {
         //подготовка к чтению данных
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!
         //размер массива
         int n = scanner.nextInt();
@@ -61,6 +62,15 @@ public class C_GetInversions {
         return result;
     }
 
+    //то же без переполнения int: при n > 65536 инверсий бывает больше Integer.MAX_VALUE
+    long calcLong(InputStream stream) {
+        FastInput scanner = new FastInput(stream);
+        int n = scanner.nextInt();
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = scanner.nextInt();
+        return InversionCounter.countMergeSort(a);
+    }
+
 
     public static void main(String[] args) throws FileNotFoundException {
         String root = System.getProperty("user.dir") + "/src/";
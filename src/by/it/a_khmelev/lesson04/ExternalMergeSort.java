@@ -0,0 +1,295 @@
+package by.it.a_khmelev.lesson04;
+
+import by.it.a_khmelev.common.FastInput;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Lesson 4. Внешняя сортировка слиянием для файлов формата dataB.txt (n, затем n чисел).
+//
+// Файл может быть намного больше памяти. Память ограничена параметром memoryBytes:
+//  1. вход читается кусками по memoryBytes/8 чисел (второй такой же буфер
+//     нужен ParallelMergeSort), кусок сортируется в памяти и пишется
+//     во временный файл как двоичная серия (int подряд);
+//  2. серии сливаются k-путевым слиянием: головы серий лежат в min-куче
+//     упакованных (значение << 32 | номер серии), серии читаются окнами
+//     через отображение в память, окна делят поровну половину memoryBytes;
+//  3. если серий так много, что окно вышло бы меньше MIN_WINDOW_BYTES,
+//     слияние идет в несколько проходов группами по maxFanIn() серий
+//     (при memoryBytes < 4 * MIN_WINDOW_BYTES сливаются по две серии,
+//     и окна меньше - четверть memoryBytes);
+//  4. результат выводится потоком в том же текстовом формате.
+// Пиковая память (куски, окна, буфер вывода) не зависит от размера входа.
+// Все созданные временные файлы удаляются и при ошибке на любом шаге.
+
+public class ExternalMergeSort {
+
+    static final int MIN_WINDOW_BYTES = 1 << 16;
+    private static final int OUTPUT_BUFFER = 1 << 16;
+
+    private final long memoryBytes;
+    private final File directory;
+
+    ExternalMergeSort(long memoryBytes) {
+        this(memoryBytes, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    ExternalMergeSort(long memoryBytes, File directory) {
+        if (memoryBytes < 1024) throw new IllegalArgumentException("memoryBytes is too small: " + memoryBytes);
+        this.memoryBytes = memoryBytes;
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        //5*10^7 чисел (~500 МБ текста) при памяти 64 МБ
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        File input = File.createTempFile("mergesort", ".txt");
+        File output = File.createTempFile("mergesort", ".out");
+        try {
+            java.util.Random random = new java.util.Random(1);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(input), OUTPUT_BUFFER)) {
+                out.write((n + "\n").getBytes());
+                for (int i = 0; i < n; i++) out.write((random.nextInt(1_000_000_000) + 1 + " ").getBytes());
+            }
+            long startTime = System.currentTimeMillis();
+            new ExternalMergeSort(64L << 20).sort(input, output);
+            System.out.printf("external sort %d numbers (%d MB) time=%d\n", n, input.length() >> 20,
+                    System.currentTimeMillis() - startTime);
+            try (FastInput check = new FastInput(output)) {
+                boolean ok = check.nextInt() == n;
+                for (int i = 0, previous = 0; i < n && ok; i++) {
+                    int value = check.nextInt();
+                    ok = previous <= value;
+                    previous = value;
+                }
+                System.out.println("sorted=" + ok);
+            }
+        } finally {
+            input.delete();
+            output.delete();
+        }
+    }
+
+    void sort(File input, File output) throws IOException {
+        List<File> temporary = new ArrayList<>();     //все созданные файлы, для удаления в finally
+        List<File> runs = new ArrayList<>();
+        long n;
+        try {
+            try (FastInput scanner = new FastInput(input)) {
+                //n берется из файла: отрицательное или большее реального числа значений - ошибка входа
+                try {
+                    n = scanner.nextLong();
+                } catch (NoSuchElementException e) {
+                    throw new IOException("input is empty: " + input);
+                }
+                if (n < 0) throw new IOException("negative number count " + n + " in " + input);
+                int chunk = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, memoryBytes / 8));
+                int[] buffer = new int[(int) Math.min(chunk, n)];
+                for (long done = 0; done < n; ) {
+                    int size = (int) Math.min(buffer.length, n - done);
+                    if (size < buffer.length) buffer = new int[size];    //последний неполный кусок
+                    for (int i = 0; i < size; i++) {
+                        try {
+                            buffer[i] = scanner.nextInt();
+                        } catch (NoSuchElementException e) {
+                            throw new IOException("input is truncated: expected " + n + " numbers, found "
+                                    + (done + i) + " in " + input);
+                        }
+                    }
+                    ParallelMergeSort.sort(buffer);
+                    runs.add(writeRun(buffer, temporary));
+                    done += size;
+                }
+            }
+            int maxFanIn = maxFanIn();
+            while (runs.size() > maxFanIn) {
+                List<File> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += maxFanIn) {
+                    List<File> group = runs.subList(from, Math.min(runs.size(), from + maxFanIn));
+                    File run = createRun(temporary);
+                    merged.add(run);
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(run), OUTPUT_BUFFER)) {
+                        merge(group, new RunSink(out));
+                    }
+                    for (File file : group) file.delete();
+                }
+                runs = merged;
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), OUTPUT_BUFFER)) {
+                TextSink sink = new TextSink(out);
+                sink.number(n);
+                out.write('\n');
+                merge(runs, sink);
+            }
+        } finally {
+            for (File file : temporary) file.delete();
+        }
+    }
+
+    //сколько серий сливается за раз, чтобы окно merge было не меньше MIN_WINDOW_BYTES
+    int maxFanIn() {
+        return (int) Math.max(2, Math.min(1 << 16, memoryBytes / 2 / MIN_WINDOW_BYTES));
+    }
+
+    //окно одной серии при слиянии k серий: половина memoryBytes поровну, кратно int
+    long windowBytes(int k) {
+        return Math.max(4, memoryBytes / 2 / Math.max(1, k)) & ~3L;
+    }
+
+    private File createRun(List<File> temporary) throws IOException {
+        File run = File.createTempFile("mergesort-run", ".bin", directory);
+        temporary.add(run);
+        return run;
+    }
+
+    private File writeRun(int[] a, List<File> temporary) throws IOException {
+        File run = createRun(temporary);
+        try (FileChannel channel = FileChannel.open(run.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(OUTPUT_BUFFER);
+            IntBuffer ints = bytes.asIntBuffer();
+            for (int from = 0; from < a.length; from += ints.capacity()) {
+                int length = Math.min(ints.capacity(), a.length - from);
+                ints.clear();
+                ints.put(a, from, length);
+                bytes.clear().limit(4 * length);
+                while (bytes.hasRemaining()) channel.write(bytes);
+            }
+        }
+        return run;
+    }
+
+    //k-путевое слияние серий в sink через min-кучу упакованных голов
+    private void merge(List<File> files, Sink sink) throws IOException {
+        int k = files.size();
+        long window = windowBytes(k);
+        Run[] runs = new Run[k];
+        long[] heap = new long[k];
+        int size = 0;
+        try {
+            for (int i = 0; i < k; i++) {
+                runs[i] = new Run(files.get(i), window);
+                if (runs[i].hasNext()) heap[size++] = pack(runs[i].next(), i);
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) siftDown(heap, size, i);
+            while (size > 0) {
+                long top = heap[0];
+                int run = (int) top;
+                sink.write((int) (top >> 32));
+                if (runs[run].hasNext()) heap[0] = pack(runs[run].next(), run);
+                else heap[0] = heap[--size];
+                siftDown(heap, size, 0);
+            }
+        } finally {
+            for (Run run : runs) if (run != null) run.close();
+        }
+    }
+
+    private static long pack(int value, int run) {
+        return ((long) value << 32) | run;
+    }
+
+    private static void siftDown(long[] heap, int size, int i) {
+        if (size == 0) return;
+        long value = heap[i];
+        for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= value) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    //двоичная серия, читается окнами по window байт через отображение в память
+    private static class Run {
+        private final FileChannel channel;
+        private final long length;
+        private final long window;
+        private long mapped;
+        private IntBuffer buffer;
+
+        Run(File file, long window) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.length = channel.size();
+            this.window = window;
+        }
+
+        boolean hasNext() {
+            return (buffer != null && buffer.hasRemaining()) || mapped < length;
+        }
+
+        int next() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                long size = Math.min(window, length - mapped);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapped, size).asIntBuffer();
+                mapped += size;
+            }
+            return buffer.get();
+        }
+
+        void close() throws IOException {
+            buffer = null;
+            channel.close();
+        }
+    }
+
+    private interface Sink {
+        void write(int value) throws IOException;
+    }
+
+    //промежуточная серия: int в двоичном виде (big-endian, как читает IntBuffer)
+    private static class RunSink implements Sink {
+        private final OutputStream out;
+
+        RunSink(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+    }
+
+    //итоговый вывод: числа через пробел, без String для каждого числа
+    private static class TextSink implements Sink {
+        private final OutputStream out;
+        private final byte[] digits = new byte[20];
+        private boolean first = true;
+
+        TextSink(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            if (!first) out.write(' ');
+            first = false;
+            number(value);
+        }
+
+        //знак пишется отдельно, а цифры берутся по модулю остатка: -value для Long.MIN_VALUE не существует
+        void number(long value) throws IOException {
+            if (value < 0) out.write('-');
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + Math.abs(value % 10));
+                value /= 10;
+            } while (value != 0);
+            while (length > 0) out.write(digits[--length]);
+        }
+    }
+}
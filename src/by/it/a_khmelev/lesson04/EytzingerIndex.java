@@ -0,0 +1,101 @@
+package by.it.a_khmelev.lesson04;
+
+// Lesson 4. Статический индекс для поиска в отсортированном массиве (раскладка Эйтцингера).
+//
+// Бинарный поиск на большом массиве почти на каждом шаге промахивается мимо кэша:
+// после первых уровней середины диапазонов лежат далеко друг от друга.
+// Здесь массив переложен в порядке обхода дерева поиска в ширину (BFS):
+//      t[1] - корень, дети узла k - t[2k] и t[2k+1].
+// Верхние уровни дерева лежат подряд в начале массива и всегда в кэше,
+// а потомки узла на 4 уровня вниз (16 узлов t[16k..16k+15]) - в одной-двух кэш-линиях.
+// Спуск без ветвлений: k = 2k + (t[k] < x), условный переход не нужен,
+// и процессору нечего предсказывать. После спуска номер k "лишние" правые
+// шаги снимает сдвигом на (число младших единиц + 1) - получается
+// узел с первым элементом >= x (нижняя граница).
+// Пока идет сравнение на уровне k, уже читается t[16k] - "программная
+// предвыборка": к моменту спуска на 4 уровня нужная кэш-линия уже загружена.
+// Ответы те же, что у A_BinaryFind: индекс 1..n в исходном массиве или -1.
+
+public class EytzingerIndex {
+
+    private final int n;
+    private final int[] tree;       //t[1..n] в порядке BFS, t[0] не используется
+    private final int[] index;      //1-based индекс элемента t[k] в исходном массиве
+
+    EytzingerIndex(int[] sorted) {
+        n = sorted.length;
+        tree = new int[n + 1];
+        index = new int[n + 1];
+        //симметричный обход дерева BFS-номеров дает элементы по возрастанию
+        int next = 0;
+        int k = 1;
+        while (next < n) {
+            while (k <= n) k <<= 1;                             //в самый левый непройденный узел
+            k >>>= Integer.numberOfTrailingZeros(~k) + 1;       //подняться к ближайшему предку "справа"
+            tree[k] = sorted[next];
+            index[k] = ++next;
+            k = 2 * k + 1;                                      //дальше - правое поддерево
+        }
+    }
+
+    public static void main(String[] args) {
+        java.util.Random random = new java.util.Random(1);
+        int queries = 10_000_000;
+        for (int n : new int[]{1 << 10, 1 << 17, 1 << 24}) {
+            int[] a = new int[n];
+            for (int i = 0, value = 0; i < n; i++) a[i] = value += 1 + random.nextInt(100);
+            int[] q = new int[queries];
+            for (int i = 0; i < queries; i++) q[i] = random.nextInt(a[n - 1] + 1);
+
+            long startTime = System.currentTimeMillis();
+            long checksum = 0;
+            for (int value : q) checksum += binarySearch(a, value);
+            long plain = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            EytzingerIndex index = new EytzingerIndex(a);
+            long built = System.currentTimeMillis() - startTime;
+            startTime = System.currentTimeMillis();
+            long checksum2 = 0;
+            for (int value : q) checksum2 += index.find(value);
+            System.out.printf("n=%d: binary search %d queries time=%d, eytzinger time=%d (build %d) same=%b\n",
+                    n, queries, plain, System.currentTimeMillis() - startTime, built, checksum == checksum2);
+        }
+    }
+
+    //классический бинарный поиск, как в A_BinaryFind: 1-based индекс или -1
+    static int binarySearch(int[] a, int value) {
+        int lo = 0, hi = a.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < value) lo = mid + 1;
+            else if (a[mid] > value) hi = mid - 1;
+            else return mid + 1;
+        }
+        return -1;
+    }
+
+    //1-based индекс value в исходном массиве или -1
+    int find(int value) {
+        int k = lowerBound(value);
+        return k != 0 && tree[k] == value ? index[k] : -1;
+    }
+
+    //номер узла с первым элементом >= value, 0 если такого нет.
+    //В Java нет инструкции prefetch: ее заменяет чтение t[16k]. Результат чтений
+    //остается в локальной переменной и участвует в возврате, чтобы JIT их не выбросил,
+    //а общих полей индекс при поиске не пишет (читатели не делят кэш-линию на запись)
+    private int lowerBound(int value) {
+        int[] t = tree;
+        int k = 1;
+        int touched = 0;
+        while (k <= n) {
+            //загрузка правнуков на 4 уровня вниз начинается заранее и не ждет сравнения
+            touched ^= t[(int) Math.min(16L * k, n)];
+            k = 2 * k + (t[k] < value ? 1 : 0);
+        }
+        //после цикла k > n >= 0, условие не выполняется, но JIT этого не докажет
+        if (k < 0 && touched == 0) return 0;
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+}
@@ -0,0 +1,71 @@
+package by.it.a_khmelev.lesson04;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// Lesson 4. Подсчет инверсий в long (до n*(n-1)/2 ~ 5*10^15 при n = 10^8).
+//
+// Два независимых способа:
+//  1. сортировка слиянием на ForkJoinPool - ParallelMergeSort.sortCounting
+//     на копии массива. Каждое слияние возвращает число пар (x из левой половины,
+//     y из правой) с x > y. Параллельное слияние делит половины на голову и хвост
+//     так, что каждый x из хвоста левой больше каждого y из головы правой,
+//     а остальные пары между частями инверсий не дают: к сумме по частям
+//     добавляется (длина хвоста левой) * (длина головы правой);
+//  2. дерево Фенвика по сжатым координатам: значения заменяются рангами 1..m,
+//     и для каждого элемента слева направо считается, сколько уже
+//     встреченных элементов больше него. O(n log n), без рекурсии.
+
+public class InversionCounter {
+
+    static long countMergeSort(int[] a) {
+        return countMergeSort(a, ForkJoinPool.commonPool());
+    }
+
+    //входной массив не меняется
+    static long countMergeSort(int[] a, ForkJoinPool pool) {
+        return ParallelMergeSort.sortCounting(a.clone(), pool);
+    }
+
+    static long countFenwick(int[] a) {
+        int n = a.length;
+        int[] sorted = a.clone();
+        Arrays.parallelSort(sorted);
+        int m = 0;
+        for (int i = 0; i < n; i++) if (i == 0 || sorted[i] != sorted[i - 1]) sorted[m++] = sorted[i];
+        int[] tree = new int[m + 1];
+        long inversions = 0;
+        for (int i = 0; i < n; i++) {
+            int rank = Arrays.binarySearch(sorted, 0, m, a[i]) + 1;
+            //сколько из i предыдущих не больше a[i]
+            int notGreater = 0;
+            for (int k = rank; k > 0; k -= k & -k) notGreater += tree[k];
+            inversions += i - notGreater;
+            for (int k = rank; k <= m; k += k & -k) tree[k]++;
+        }
+        return inversions;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        int[] a = new int[n];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < n; i++) a[i] = random.nextInt(1_000_000_001);
+        int cores = Runtime.getRuntime().availableProcessors();
+        long single = 0;
+        for (int parallelism = 1; ; parallelism = Math.min(2 * parallelism, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long startTime = System.currentTimeMillis();
+            long inversions = countMergeSort(a, pool);
+            long time = System.currentTimeMillis() - startTime;
+            pool.shutdown();
+            if (parallelism == 1) single = time;
+            System.out.printf("n=%d merge sort cores=%d inversions=%d time=%d speedup=%.2f\n", n, parallelism, inversions,
+                    time, (double) single / Math.max(1, time));
+            if (parallelism == cores) break;
+        }
+        long startTime = System.currentTimeMillis();
+        long inversions = countFenwick(a);
+        System.out.printf("n=%d fenwick inversions=%d time=%d\n", n, inversions, System.currentTimeMillis() - startTime);
+    }
+}
@@ -26,6 +26,52 @@ public class Lesson4Test {
     }
 
 
+    @Test
+    public void ABatch() throws Exception {
+        String root = System.getProperty("user.dir") + "/src/";
+        InputStream stream = new FileInputStream(root + "by/it/a_khmelev/lesson04/dataA.txt");
+        int[] result=new A_BinaryFind().findIndexBatch(stream);
+        assertTrue("ABatch failed", Arrays.equals(result, new int[]{3, 1, -1, 1, -1}));
+
+        java.util.Random random=new java.util.Random(31);
+        for (int test = 0; test < 20; test++) {
+            int n=random.nextInt(test<10 ? 100 : 100000);
+            int[] a=new int[n];
+            for (int i = 0, value = -50*n; i < n; i++) a[i]=value+=1+random.nextInt(100);
+            //и маленькие пакеты, и пакеты больше порога параллельной обработки
+            int[] queries=new int[random.nextInt(test%2==0 ? 1000 : 3*A_BinaryFind.PARALLEL_BATCH_THRESHOLD)];
+            for (int i = 0; i < queries.length; i++) {
+                queries[i]=n>0 && random.nextBoolean() ? a[random.nextInt(n)] : random.nextInt(200*n+1)-100*n;
+            }
+            int[] indices=A_BinaryFind.findIndices(a, queries);
+            for (int i = 0; i < queries.length; i++) {
+                int expected=Arrays.binarySearch(a, queries[i]);
+                assertTrue("ABatch failed", indices[i]==(expected>=0 ? expected+1 : -1));
+            }
+        }
+    }
+
+
+    @Test
+    public void AEytzinger() throws Exception {
+        EytzingerIndex sample=new EytzingerIndex(new int[]{1, 5, 8, 12, 13});
+        boolean ok=sample.find(8)==3 && sample.find(1)==1 && sample.find(23)==-1 && sample.find(11)==-1;
+        assertTrue("AEytzinger failed", ok && new EytzingerIndex(new int[0]).find(1)==-1);
+
+        java.util.Random random=new java.util.Random(37);
+        for (int test = 0; test < 200; test++) {
+            int n=random.nextInt(test<150 ? 70 : 100000);
+            int[] a=new int[n];
+            for (int i = 0, value = -50*n; i < n; i++) a[i]=value+=1+random.nextInt(100);
+            EytzingerIndex index=new EytzingerIndex(a);
+            for (int i = 0; i < 1000; i++) {
+                int value=n>0 && random.nextBoolean() ? a[random.nextInt(n)] : random.nextInt(200*n+3)-100*n-1;
+                assertTrue("AEytzinger failed", index.find(value)==EytzingerIndex.binarySearch(a, value));
+            }
+        }
+    }
+
+
     @Test
     public void B() throws Exception {
         String root = System.getProperty("user.dir") + "/src/";
@@ -45,6 +91,157 @@ public class Lesson4Test {
     }
 
 
+    @Test
+    public void BParallel() throws Exception {
+        String root = System.getProperty("user.dir") + "/src/";
+        InputStream stream = new FileInputStream(root + "by/it/a_khmelev/lesson04/dataB.txt");
+        int[] result=new B_MergeSort().getParallelMergeSort(stream);
+        assertTrue("BParallel failed", Arrays.equals(result, new int[]{2, 2, 3, 9, 9}));
+
+        java.util.Random random=new java.util.Random(41);
+        java.util.concurrent.ForkJoinPool pool=new java.util.concurrent.ForkJoinPool(4);
+        for (int test = 0; test < 30; test++) {
+            //размеры вокруг всех порогов, много повторов и уже упорядоченные входы
+            int n=random.nextInt(test<20 ? 3*ParallelMergeSort.INSERTION_CUTOFF : 300000);
+            int[] a=new int[n];
+            for (int i = 0; i < n; i++) {
+                a[i]=test%3==0 ? random.nextInt(10) : test%3==1 ? n-i : random.nextInt();
+            }
+            int[] expected=a.clone();
+            Arrays.sort(expected);
+            ParallelMergeSort.sort(a, pool);
+            assertTrue("BParallel failed", Arrays.equals(a, expected));
+        }
+        pool.shutdown();
+    }
+
+
+    @Test
+    public void BExternal() throws Exception {
+        String root = System.getProperty("user.dir") + "/src/";
+        java.io.File output=java.io.File.createTempFile("mergesort", ".out");
+        try {
+            new ExternalMergeSort(1 << 20).sort(new java.io.File(root + "by/it/a_khmelev/lesson04/dataB.txt"), output);
+            String text=new String(java.nio.file.Files.readAllBytes(output.toPath()));
+            assertTrue("BExternal failed", text.equals("5\n2 2 3 9 9"));
+
+            //маленькая память: десятки серий и слияние в несколько проходов
+            java.io.File input=java.io.File.createTempFile("mergesort", ".txt");
+            try {
+                java.util.Random random=new java.util.Random(43);
+                int n=300000;
+                int[] expected=new int[n];
+                StringBuilder sb=new StringBuilder().append(n).append('\n');
+                for (int i = 0; i < n; i++) {
+                    expected[i]=1+random.nextInt(1000000000);
+                    sb.append(expected[i]).append(i%20==19 ? '\n' : ' ');
+                }
+                java.nio.file.Files.write(input.toPath(), sb.toString().getBytes());
+                new ExternalMergeSort(ExternalMergeSort.MIN_WINDOW_BYTES).sort(input, output);
+                Arrays.sort(expected);
+                by.it.a_khmelev.common.FastInput sorted=new by.it.a_khmelev.common.FastInput(output);
+                boolean ok=sorted.nextInt()==n;
+                for (int i = 0; i < n && ok; i++) ok=sorted.nextInt()==expected[i];
+                ok=ok && !sorted.hasNext();
+                sorted.close();
+                assertTrue("BExternal big failed", ok);
+
+                //окна слияния не меньше MIN_WINDOW_BYTES, если памяти хватает хотя бы на 4 окна
+                for (long memory : new long[]{4L*ExternalMergeSort.MIN_WINDOW_BYTES, 1L << 20, 64L << 20}) {
+                    ExternalMergeSort sorter=new ExternalMergeSort(memory);
+                    assertTrue("BExternal window failed " + memory,
+                            sorter.windowBytes(sorter.maxFanIn())>=ExternalMergeSort.MIN_WINDOW_BYTES);
+                }
+
+                //ошибка при записи результата: временные серии не остаются на диске
+                java.io.File directory=java.nio.file.Files.createTempDirectory("mergesort").toFile();
+                boolean thrown=false;
+                try {
+                    new ExternalMergeSort(ExternalMergeSort.MIN_WINDOW_BYTES, directory).sort(input, directory);
+                } catch (java.io.IOException e) {
+                    thrown=true;
+                }
+                String[] left=directory.list();
+                directory.delete();
+                assertTrue("BExternal cleanup failed", thrown && left!=null && left.length==0);
+
+                //неверное число значений в заголовке - IOException, а не сбой внутри чтения
+                for (String bad : new String[]{"", "-5\n1 2 3", "5\n1 2 3"}) {
+                    java.nio.file.Files.write(input.toPath(), bad.getBytes());
+                    thrown=false;
+                    try {
+                        new ExternalMergeSort(1 << 20).sort(input, output);
+                    } catch (java.io.IOException e) {
+                        thrown=true;
+                    }
+                    assertTrue("BExternal bad count not detected: " + bad, thrown);
+                }
+
+                //отрицательные числа, включая Integer.MIN_VALUE
+                java.nio.file.Files.write(input.toPath(), "4\n3 -2147483648 -7 0".getBytes());
+                new ExternalMergeSort(1 << 20).sort(input, output);
+                assertTrue("BExternal negative failed",
+                        new String(java.nio.file.Files.readAllBytes(output.toPath())).equals("4\n-2147483648 -7 0 3"));
+            } finally {
+                input.delete();
+            }
+        } finally {
+            output.delete();
+        }
+    }
+
+
+    @Test
+    public void BNatural() throws Exception {
+        java.util.Random random=new java.util.Random(47);
+        for (int test = 0; test < 60; test++) {
+            int n=random.nextInt(test<30 ? 200 : 200000);
+            int[] a=new int[n];
+            //случайные, с повторами, из готовых возрастающих и убывающих кусков
+            int kind=test%4;
+            for (int i = 0; i < n; i++) {
+                a[i]=kind==0 ? random.nextInt() : kind==1 ? random.nextInt(5) : kind==2 ? i : -i;
+            }
+            if (kind>=2) for (int i = 0; i < n/50; i++) a[random.nextInt(n)]=random.nextInt(n);
+            if (kind==3 && n>10) Arrays.sort(a, n/3, n/2);
+            int[] expected=a.clone();
+            Arrays.sort(expected);
+
+            //Comparable[]: сортировка должна быть устойчивой
+            Long[] boxed=new Long[n];
+            for (int i = 0; i < n; i++) boxed[i]=((long) a[i] << 32) | i;
+            Integer[] keys=new Integer[n];
+            for (int i = 0; i < n; i++) keys[i]=a[i];
+            NaturalMergeSort.sort(a);
+            assertTrue("BNatural int[] failed", Arrays.equals(a, expected));
+            NaturalMergeSort.sort(boxed);
+            for (int i = 1; i < n; i++) assertTrue("BNatural Comparable[] failed", boxed[i-1]<boxed[i]);
+            Stable[] stable=new Stable[n];
+            for (int i = 0; i < n; i++) stable[i]=new Stable(keys[i], i);
+            NaturalMergeSort.sort(stable);
+            for (int i = 1; i < n; i++) {
+                assertTrue("BNatural stability failed", stable[i-1].key<stable[i].key
+                        || (stable[i-1].key==stable[i].key && stable[i-1].index<stable[i].index));
+            }
+        }
+    }
+
+    private static class Stable implements Comparable<Stable> {
+        final int key;
+        final int index;
+
+        Stable(int key, int index) {
+            this.key=key;
+            this.index=index;
+        }
+
+        @Override
+        public int compareTo(Stable other) {
+            return Integer.compare(key, other.key);
+        }
+    }
+
+
     @Test
     public void C() throws Exception {
         String root = System.getProperty("user.dir") + "/src/";
@@ -58,4 +255,36 @@ public class Lesson4Test {
 
     }
 
+    @Test
+    public void CLong() throws Exception {
+        String root = System.getProperty("user.dir") + "/src/";
+        InputStream stream = new FileInputStream(root + "by/it/a_khmelev/lesson04/dataC.txt");
+        assertTrue("CLong failed", 2==new C_GetInversions().calcLong(stream));
+
+        java.util.Random random=new java.util.Random(25);
+        for (int test = 0; test < 40; test++) {
+            int n=random.nextInt(test<30 ? 300 : 100000);
+            int[] a=new int[n];
+            for (int i = 0; i < n; i++) a[i]=test%2==0 ? random.nextInt() : random.nextInt(10);
+            long expected=0;
+            if (n<=300) {
+                for (int i = 0; i < n; i++) for (int j = i+1; j < n; j++) if (a[i]>a[j]) expected++;
+            } else {
+                expected=InversionCounter.countFenwick(a);
+            }
+            int[] copy=a.clone();
+            assertTrue("CLong merge sort failed", expected==InversionCounter.countMergeSort(a));
+            assertTrue("CLong input changed", Arrays.equals(a, copy));
+            if (n<=300) assertTrue("CLong fenwick failed", expected==InversionCounter.countFenwick(a));
+        }
+
+        //по убыванию: n*(n-1)/2 больше Integer.MAX_VALUE
+        int n=100000;
+        int[] a=new int[n];
+        for (int i = 0; i < n; i++) a[i]=n-i;
+        long expected=(long) n*(n-1)/2;
+        assertTrue("CLong overflow", expected==InversionCounter.countMergeSort(a));
+        assertTrue("CLong fenwick overflow", expected==InversionCounter.countFenwick(a));
+    }
+
 }
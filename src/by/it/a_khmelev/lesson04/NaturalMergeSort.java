@@ -0,0 +1,425 @@
+package by.it.a_khmelev.lesson04;
+
+// Lesson 4. Адаптивная сортировка слиянием естественных серий (по мотивам TimSort).
+//
+// Нисходящая сортировка слиянием всегда делает n*log(n) работы, даже если
+// массив уже упорядочен. Здесь массив сначала режется на готовые серии:
+//  - неубывающие серии берутся как есть, строго убывающие разворачиваются
+//    (строго - чтобы разворот не менял порядок равных, сортировка устойчива);
+//  - короткие серии дополняются вставками до minRun (16..32 элемента);
+//  - серии складываются в стек, длины на котором держат инварианты
+//        len[i-2] > len[i-1] + len[i]   и   len[i-1] > len[i],
+//    поэтому сливаются серии близкой длины и стек не глубже log(n);
+//  - перед слиянием "галопом" (поиск с удвоением шага) отбрасываются
+//    элементы, уже стоящие на своем месте, а при слиянии, если одна серия
+//    выигрывает MIN_GALLOP раз подряд, ее элементы копируются блоками.
+// Упорядоченный (или упорядоченный по убыванию) массив - одна серия, O(n).
+// Две версии: для Comparable[] и для int[] (без упаковки в Integer).
+
+public class NaturalMergeSort {
+
+    static final int MIN_MERGE = 32;
+    static final int MIN_GALLOP = 7;
+    private static final int MAX_STACK = 64;
+
+    public static void main(String[] args) {
+        int n = 10_000_000;
+        java.util.Random random = new java.util.Random(1);
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) sorted[i] = i;
+        int[] almost = sorted.clone();
+        for (int i = 0; i < n / 1000; i++) almost[random.nextInt(n)] = random.nextInt(n);
+        int[] reversed = new int[n];
+        for (int i = 0; i < n; i++) reversed[i] = n - i;
+        int[] shuffled = new int[n];
+        for (int i = 0; i < n; i++) shuffled[i] = random.nextInt();
+        String[] names = {"sorted", "almost sorted", "reversed", "random"};
+        int[][] inputs = {sorted, almost, reversed, shuffled};
+        //база для сравнения - ParallelMergeSort в один поток (он попутно считает инверсии, см. его заголовок)
+        java.util.concurrent.ForkJoinPool single = new java.util.concurrent.ForkJoinPool(1);
+        for (int t = 0; t < inputs.length; t++) {
+            int[] a = inputs[t].clone();
+            long startTime = System.currentTimeMillis();
+            sort(a);
+            long natural = System.currentTimeMillis() - startTime;
+            a = inputs[t].clone();
+            startTime = System.currentTimeMillis();
+            ParallelMergeSort.sort(a, single);
+            long topDown = System.currentTimeMillis() - startTime;
+            Integer[] boxed = new Integer[n];
+            for (int i = 0; i < n; i++) boxed[i] = inputs[t][i];
+            startTime = System.currentTimeMillis();
+            sort(boxed);
+            System.out.printf("%-14s n=%d int[] time=%d (top-down merge sort %d), Integer[] time=%d\n",
+                    names[t], n, natural, topDown, System.currentTimeMillis() - startTime);
+        }
+        single.shutdown();
+    }
+
+    //==================== Comparable[] ====================
+
+    static <T extends Comparable<? super T>> void sort(T[] a) {
+        new ObjectSorter<>(a).sort();
+    }
+
+    private static class ObjectSorter<T extends Comparable<? super T>> {
+        private final T[] a;
+        private T[] tmp;
+        private final int[] runBase = new int[MAX_STACK];
+        private final int[] runLength = new int[MAX_STACK];
+        private int stackSize;
+
+        ObjectSorter(T[] a) {
+            this.a = a;
+        }
+
+        void sort() {
+            int n = a.length;
+            if (n < 2) return;
+            int minRun = minRunLength(n);
+            for (int lo = 0; lo < n; ) {
+                int run = countRunAndMakeAscending(lo, n);
+                if (run < minRun) {
+                    int force = Math.min(minRun, n - lo);
+                    binarySort(lo, lo + force, lo + run);
+                    run = force;
+                }
+                runBase[stackSize] = lo;
+                runLength[stackSize++] = run;
+                mergeCollapse();
+                lo += run;
+            }
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLength[i - 1] < runLength[i + 1]) i--;
+                mergeAt(i);
+            }
+        }
+
+        private int countRunAndMakeAscending(int lo, int hi) {
+            int end = lo + 1;
+            if (end == hi) return 1;
+            if (a[end++].compareTo(a[lo]) < 0) {
+                while (end < hi && a[end].compareTo(a[end - 1]) < 0) end++;
+                for (int i = lo, j = end - 1; i < j; i++, j--) {
+                    T t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                }
+            } else {
+                while (end < hi && a[end].compareTo(a[end - 1]) >= 0) end++;
+            }
+            return end - lo;
+        }
+
+        //вставки с бинарным поиском места; a[lo..start) уже упорядочен
+        private void binarySort(int lo, int hi, int start) {
+            for (int i = start; i < hi; i++) {
+                T value = a[i];
+                int left = lo, right = i;
+                while (left < right) {
+                    int mid = (left + right) >>> 1;
+                    if (value.compareTo(a[mid]) < 0) right = mid;
+                    else left = mid + 1;
+                }
+                System.arraycopy(a, left, a, left + 1, i - left);
+                a[left] = value;
+            }
+        }
+
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if ((i > 0 && runLength[i - 1] <= runLength[i] + runLength[i + 1])
+                        || (i > 1 && runLength[i - 2] <= runLength[i - 1] + runLength[i])) {
+                    if (runLength[i - 1] < runLength[i + 1]) i--;
+                } else if (runLength[i] > runLength[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        //сливает серии i и i+1 стека
+        private void mergeAt(int i) {
+            int base1 = runBase[i], length1 = runLength[i];
+            int base2 = runBase[i + 1], length2 = runLength[i + 1];
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            stackSize--;
+            //начало первой серии, не большее начала второй, уже на месте
+            int k = gallopRight(a[base2], a, base1, length1);
+            base1 += k;
+            length1 -= k;
+            if (length1 == 0) return;
+            //конец второй серии, не меньший конца первой, тоже на месте
+            length2 = gallopLeft(a[base1 + length1 - 1], a, base2, length2);
+            if (length2 == 0) return;
+            mergeLo(base1, length1, base2, length2);
+        }
+
+        //первая серия копируется во временный массив и сливается со второй слева направо
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void mergeLo(int base1, int length1, int base2, int length2) {
+            if (tmp == null || tmp.length < length1) {
+                tmp = (T[]) new Comparable[Math.max(length1, tmp == null ? 0 : 2 * tmp.length)];
+            }
+            System.arraycopy(a, base1, tmp, 0, length1);
+            int c1 = 0, end1 = length1;
+            int c2 = base2, end2 = base2 + length2;
+            int dest = base1;
+            while (c1 < end1 && c2 < end2) {
+                int wins1 = 0, wins2 = 0;
+                //обычное слияние, пока одна из серий не выиграет MIN_GALLOP раз подряд
+                while (c1 < end1 && c2 < end2 && (wins1 | wins2) < MIN_GALLOP) {
+                    if (a[c2].compareTo(tmp[c1]) < 0) {
+                        a[dest++] = a[c2++];
+                        wins2++;
+                        wins1 = 0;
+                    } else {
+                        a[dest++] = tmp[c1++];
+                        wins1++;
+                        wins2 = 0;
+                    }
+                }
+                //галоп: блоками, пока блоки длинные
+                while (c1 < end1 && c2 < end2) {
+                    int k1 = gallopRight(a[c2], tmp, c1, end1 - c1);
+                    System.arraycopy(tmp, c1, a, dest, k1);
+                    dest += k1;
+                    c1 += k1;
+                    if (c1 == end1) break;
+                    a[dest++] = a[c2++];
+                    if (c2 == end2) break;
+                    int k2 = gallopLeft(tmp[c1], a, c2, end2 - c2);
+                    System.arraycopy(a, c2, a, dest, k2);
+                    dest += k2;
+                    c2 += k2;
+                    if (c2 == end2) break;
+                    a[dest++] = tmp[c1++];
+                    if (k1 < MIN_GALLOP && k2 < MIN_GALLOP) break;
+                }
+            }
+            //остаток второй серии уже на месте
+            System.arraycopy(tmp, c1, a, dest, end1 - c1);
+        }
+
+        //сколько элементов x[base..base+length) меньше key
+        private int gallopLeft(T key, T[] x, int base, int length) {
+            int lo = 0, hi = 1;
+            while (hi < length && x[base + hi - 1].compareTo(key) < 0) {
+                lo = hi;
+                hi = Math.min(length, 2 * hi + 1);
+            }
+            hi = Math.min(hi, length);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[base + mid].compareTo(key) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        //сколько элементов x[base..base+length) не больше key
+        private int gallopRight(T key, T[] x, int base, int length) {
+            int lo = 0, hi = 1;
+            while (hi < length && x[base + hi - 1].compareTo(key) <= 0) {
+                lo = hi;
+                hi = Math.min(length, 2 * hi + 1);
+            }
+            hi = Math.min(hi, length);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[base + mid].compareTo(key) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    //==================== int[] ====================
+
+    static void sort(int[] a) {
+        new IntSorter(a).sort();
+    }
+
+    private static class IntSorter {
+        private final int[] a;
+        private int[] tmp;
+        private final int[] runBase = new int[MAX_STACK];
+        private final int[] runLength = new int[MAX_STACK];
+        private int stackSize;
+
+        IntSorter(int[] a) {
+            this.a = a;
+        }
+
+        void sort() {
+            int n = a.length;
+            if (n < 2) return;
+            int minRun = minRunLength(n);
+            for (int lo = 0; lo < n; ) {
+                int run = countRunAndMakeAscending(lo, n);
+                if (run < minRun) {
+                    int force = Math.min(minRun, n - lo);
+                    binarySort(lo, lo + force, lo + run);
+                    run = force;
+                }
+                runBase[stackSize] = lo;
+                runLength[stackSize++] = run;
+                mergeCollapse();
+                lo += run;
+            }
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLength[i - 1] < runLength[i + 1]) i--;
+                mergeAt(i);
+            }
+        }
+
+        private int countRunAndMakeAscending(int lo, int hi) {
+            int end = lo + 1;
+            if (end == hi) return 1;
+            if (a[end++] < a[lo]) {
+                while (end < hi && a[end] < a[end - 1]) end++;
+                for (int i = lo, j = end - 1; i < j; i++, j--) {
+                    int t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                }
+            } else {
+                while (end < hi && a[end] >= a[end - 1]) end++;
+            }
+            return end - lo;
+        }
+
+        private void binarySort(int lo, int hi, int start) {
+            for (int i = start; i < hi; i++) {
+                int value = a[i];
+                int left = lo, right = i;
+                while (left < right) {
+                    int mid = (left + right) >>> 1;
+                    if (value < a[mid]) right = mid;
+                    else left = mid + 1;
+                }
+                System.arraycopy(a, left, a, left + 1, i - left);
+                a[left] = value;
+            }
+        }
+
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if ((i > 0 && runLength[i - 1] <= runLength[i] + runLength[i + 1])
+                        || (i > 1 && runLength[i - 2] <= runLength[i - 1] + runLength[i])) {
+                    if (runLength[i - 1] < runLength[i + 1]) i--;
+                } else if (runLength[i] > runLength[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        private void mergeAt(int i) {
+            int base1 = runBase[i], length1 = runLength[i];
+            int base2 = runBase[i + 1], length2 = runLength[i + 1];
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            stackSize--;
+            int k = gallopRight(a[base2], a, base1, length1);
+            base1 += k;
+            length1 -= k;
+            if (length1 == 0) return;
+            length2 = gallopLeft(a[base1 + length1 - 1], a, base2, length2);
+            if (length2 == 0) return;
+            mergeLo(base1, length1, base2, length2);
+        }
+
+        private void mergeLo(int base1, int length1, int base2, int length2) {
+            if (tmp == null || tmp.length < length1) {
+                tmp = new int[Math.max(length1, tmp == null ? 0 : 2 * tmp.length)];
+            }
+            System.arraycopy(a, base1, tmp, 0, length1);
+            int c1 = 0, end1 = length1;
+            int c2 = base2, end2 = base2 + length2;
+            int dest = base1;
+            while (c1 < end1 && c2 < end2) {
+                int wins1 = 0, wins2 = 0;
+                while (c1 < end1 && c2 < end2 && (wins1 | wins2) < MIN_GALLOP) {
+                    if (a[c2] < tmp[c1]) {
+                        a[dest++] = a[c2++];
+                        wins2++;
+                        wins1 = 0;
+                    } else {
+                        a[dest++] = tmp[c1++];
+                        wins1++;
+                        wins2 = 0;
+                    }
+                }
+                while (c1 < end1 && c2 < end2) {
+                    int k1 = gallopRight(a[c2], tmp, c1, end1 - c1);
+                    System.arraycopy(tmp, c1, a, dest, k1);
+                    dest += k1;
+                    c1 += k1;
+                    if (c1 == end1) break;
+                    a[dest++] = a[c2++];
+                    if (c2 == end2) break;
+                    int k2 = gallopLeft(tmp[c1], a, c2, end2 - c2);
+                    System.arraycopy(a, c2, a, dest, k2);
+                    dest += k2;
+                    c2 += k2;
+                    if (c2 == end2) break;
+                    a[dest++] = tmp[c1++];
+                    if (k1 < MIN_GALLOP && k2 < MIN_GALLOP) break;
+                }
+            }
+            System.arraycopy(tmp, c1, a, dest, end1 - c1);
+        }
+
+        private static int gallopLeft(int key, int[] x, int base, int length) {
+            int lo = 0, hi = 1;
+            while (hi < length && x[base + hi - 1] < key) {
+                lo = hi;
+                hi = Math.min(length, 2 * hi + 1);
+            }
+            hi = Math.min(hi, length);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[base + mid] < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private static int gallopRight(int key, int[] x, int base, int length) {
+            int lo = 0, hi = 1;
+            while (hi < length && x[base + hi - 1] <= key) {
+                lo = hi;
+                hi = Math.min(length, 2 * hi + 1);
+            }
+            hi = Math.min(hi, length);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[base + mid] <= key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    //minRun из [MIN_MERGE/2, MIN_MERGE]: n/minRun - степень двойки или чуть меньше
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+}
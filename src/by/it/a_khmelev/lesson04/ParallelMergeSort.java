@@ -0,0 +1,217 @@
+package by.it.a_khmelev.lesson04;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Lesson 4. Параллельная сортировка слиянием int[] на ForkJoinPool.
+//
+//  - половины сортируются параллельно (RecursiveTask<Long>: задача возвращает
+//    число инверсий своего отрезка, см. ниже);
+//  - буферов два на всю сортировку: a и b одного размера. Уровни рекурсии
+//    по очереди сливают из одного в другой ("пинг-понг"), поэтому слияние
+//    ничего не выделяет и не копирует обратно;
+//  - отрезки короче INSERTION_CUTOFF сортируются вставками;
+//  - большое слияние тоже параллельно: средний элемент большей половины
+//    делит ее пополам, бинарный поиск находит точку раздела во второй,
+//    и две независимые части сливаются параллельно.
+// Ниже SEQUENTIAL_CUTOFF задачи не создаются - тот же алгоритм выполняется в текущем потоке.
+// Попутно считается число инверсий (пар i < j, a[i] > a[j]): каждое слияние возвращает
+// число пар (x из левой половины, y из правой) с x > y, задачи складывают результаты
+// детей (sortCounting, см. InversionCounter). sort вызывает тот же sortCounting и
+// отбрасывает результат: отдельная копия задач на RecursiveAction дублировала бы весь
+// алгоритм, а подсчет в слиянии без ветвлений стоит одного умножения и сложения на шаг
+// (на 10^8 числах sort не медленнее прежнего варианта без подсчета).
+
+public class ParallelMergeSort {
+
+    static final int INSERTION_CUTOFF = 32;
+    static final int SEQUENTIAL_CUTOFF = 1 << 13;
+    static final int MERGE_CUTOFF = 1 << 14;
+
+    static void sort(int[] a) {
+        sort(a, ForkJoinPool.commonPool());
+    }
+
+    static void sort(int[] a, ForkJoinPool pool) {
+        sortCounting(a, pool);
+    }
+
+    //сортирует a и возвращает число инверсий, которое в нем было
+    static long sortCounting(int[] a, ForkJoinPool pool) {
+        if (a.length < 2) return 0;
+        int[] buffer = new int[a.length];
+        return pool.invoke(new SortTask(a, buffer, 0, a.length, true));
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        int[] data = new int[n];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < n; i++) data[i] = random.nextInt(1_000_000_001);
+        int[] a = new int[n];
+        int cores = Runtime.getRuntime().availableProcessors();
+        long single = 0;
+        for (int parallelism = 1; ; parallelism = Math.min(2 * parallelism, cores)) {
+            System.arraycopy(data, 0, a, 0, n);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long startTime = System.currentTimeMillis();
+            sort(a, pool);
+            long time = System.currentTimeMillis() - startTime;
+            pool.shutdown();
+            if (parallelism == 1) single = time;
+            boolean sorted = true;
+            for (int i = 1; i < n && sorted; i++) sorted = a[i - 1] <= a[i];
+            System.out.printf("n=%d cores=%d time=%d speedup=%.2f sorted=%b\n", n, parallelism, time,
+                    (double) single / Math.max(1, time), sorted);
+            if (parallelism == cores) break;
+        }
+        System.arraycopy(data, 0, a, 0, n);
+        long startTime = System.currentTimeMillis();
+        java.util.Arrays.parallelSort(a);
+        System.out.printf("Arrays.parallelSort cores=%d time=%d\n", cores, System.currentTimeMillis() - startTime);
+    }
+
+    //сортирует отрезок [from, to), результат оказывается в a (toA) или в b; возвращает инверсии отрезка.
+    //Исходные данные всегда в a: лист читает a, а предки пишут в свой отрезок только после детей
+    @SuppressWarnings("serial")
+    private static class SortTask extends RecursiveTask<Long> {
+        private final int[] a;
+        private final int[] b;
+        private final int from;
+        private final int to;
+        private final boolean toA;
+
+        SortTask(int[] a, int[] b, int from, int to, boolean toA) {
+            this.a = a;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.toA = toA;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= SEQUENTIAL_CUTOFF) return sortSequential(a, b, from, to, toA);
+            int mid = (from + to) >>> 1;
+            //половины ложатся в другой буфер, слияние возвращает их в целевой
+            SortTask left = new SortTask(a, b, from, mid, !toA);
+            SortTask right = new SortTask(a, b, mid, to, !toA);
+            invokeAll(left, right);
+            int[] source = toA ? b : a;
+            int[] target = toA ? a : b;
+            return left.join() + right.join() + new MergeTask(source, from, mid, mid, to, target, from).compute();
+        }
+    }
+
+    private static long sortSequential(int[] a, int[] b, int from, int to, boolean toA) {
+        if (to - from <= INSERTION_CUTOFF) {
+            long inversions = insertionSort(a, from, to);
+            if (!toA) System.arraycopy(a, from, b, from, to - from);
+            return inversions;
+        }
+        int mid = (from + to) >>> 1;
+        long inversions = sortSequential(a, b, from, mid, !toA) + sortSequential(a, b, mid, to, !toA);
+        if (toA) return inversions + merge(b, from, mid, mid, to, a, from);
+        return inversions + merge(a, from, mid, mid, to, b, from);
+    }
+
+    //сливает source[from1, to1) и source[from2, to2) в target с позиции at,
+    //возвращает число пар (x из первой части, y из второй) с x > y
+    @SuppressWarnings("serial")
+    private static class MergeTask extends RecursiveTask<Long> {
+        private final int[] source;
+        private final int from1, to1, from2, to2;
+        private final int[] target;
+        private final int at;
+
+        MergeTask(int[] source, int from1, int to1, int from2, int to2, int[] target, int at) {
+            this.source = source;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.target = target;
+            this.at = at;
+        }
+
+        @Override
+        protected Long compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= MERGE_CUTOFF) return merge(source, from1, to1, from2, to2, target, at);
+            //середина большей части и точка раздела меньшей: слева все < value, справа >= value
+            int mid1, mid2;
+            if (length1 >= length2) {
+                mid1 = (from1 + to1) >>> 1;
+                mid2 = lowerBound(source, from2, to2, source[mid1]);
+            } else {
+                mid2 = (from2 + to2) >>> 1;
+                mid1 = upperBound(source, from1, to1, source[mid2]);
+            }
+            int split = at + (mid1 - from1) + (mid2 - from2);
+            MergeTask left = new MergeTask(source, from1, mid1, from2, mid2, target, at);
+            MergeTask right = new MergeTask(source, mid1, to1, mid2, to2, target, split);
+            invokeAll(left, right);
+            //пары между частями: хвост первой части [mid1, to1) и голова второй [from2, mid2).
+            //Первая голова <= второго хвоста, а каждый x из хвоста первой больше каждого y
+            //из головы второй, поэтому таких пар-инверсий ровно tail1 * head2
+            long tail1 = to1 - mid1;
+            long head2 = mid2 - from2;
+            return left.join() + right.join() + tail1 * head2;
+        }
+    }
+
+    private static long merge(int[] source, int from1, int to1, int from2, int to2, int[] target, int at) {
+        long inversions = 0;
+        int i = from1, j = from2;
+        while (i < to1 && j < to2) {
+            int x = source[i];
+            int y = source[j];
+            //без ветвлений: y < x - берется y, и он меньше всех оставшихся в первой части
+            int right = y < x ? 1 : 0;
+            inversions += right * (to1 - i);
+            target[at++] = right != 0 ? y : x;
+            j += right;
+            i += 1 - right;
+        }
+        System.arraycopy(source, i, target, at, to1 - i);
+        System.arraycopy(source, j, target, at + to1 - i, to2 - j);
+        return inversions;
+    }
+
+    //возвращает число сдвигов, то есть инверсий отрезка
+    private static long insertionSort(int[] a, int from, int to) {
+        long inversions = 0;
+        for (int i = from + 1; i < to; i++) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= from && a[j] > value) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            inversions += i - 1 - j;
+            a[j + 1] = value;
+        }
+        return inversions;
+    }
+
+    //первый индекс в [from, to) с a[i] >= value
+    private static int lowerBound(int[] a, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (a[mid] < value) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    //первый индекс в [from, to) с a[i] > value
+    private static int upperBound(int[] a, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (a[mid] <= value) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+}
@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson05;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Видеорегистраторы и площадь.
@@ -60,7 +61,7 @@ public class A_QSort {
 
     int[] getAccessory(InputStream stream) throws FileNotFoundException {
         //подготовка к чтению данных
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
         //число отрезков отсортированного массива
         int n = scanner.nextInt();
@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson07;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Задача на программирование: расстояние Левенштейна
@@ -56,7 +57,7 @@ public class B_EditDist {
         String root = System.getProperty("user.dir") + "/src/";
         InputStream stream = new FileInputStream(root + "by/it/a_khmelev/lesson07/dataABC.txt");
         B_EditDist instance = new B_EditDist();
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         System.out.println(instance.getDistanceEdinting(scanner.nextLine(),scanner.nextLine()));
         System.out.println(instance.getDistanceEdinting(scanner.nextLine(),scanner.nextLine()));
         System.out.println(instance.getDistanceEdinting(scanner.nextLine(),scanner.nextLine()));
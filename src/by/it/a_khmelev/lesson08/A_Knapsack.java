@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson08;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Задача на программирование: рюкзак с повторами
@@ -38,7 +39,7 @@ public class A_Knapsack {
 
     int getMaxWeight(InputStream stream ) {
         //!!!!!!!!!!!!!!!!!!!!!!!!!     НАЧАЛО ЗАДАЧИ     !!!!!!!!!!!!!!!!!!!!!!!!!
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         int w=scanner.nextInt();
         int n=scanner.nextInt();
         int gold[]=new int[n];
@@ -1,9 +1,10 @@
 package by.it.a_khmelev.lesson08;
 
+import by.it.a_khmelev.common.FastInput;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.Scanner;
 
 /*
 Даны число 1<=n<=100 ступенек лестницы и
@@ -35,7 +36,7 @@ Sample Output 3:
 public class C_Stairs {
 
     int getMaxSum(InputStream stream ) {
-        Scanner scanner = new Scanner(stream);
+        FastInput scanner = new FastInput(stream);
         int n=scanner.nextInt();
         int stairs[]=new int[n];
         for (int i = 0; i < n; i++) {